@@ -0,0 +1,129 @@
+package com.udacity.catpoint.image.camera;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Frame source for cameras that drop their frames into a directory as image files. Frames already
+ * in the directory are read first, in file name order, followed by each new file as it appears.
+ * A file that is rewritten is read again, as a new frame.
+ *
+ * A file that can't be decoded, usually because the camera is still writing it, is read again
+ * each time it changes. Once it has stopped changing it is retried a few more times, a short
+ * delay apart, before it is given up on.
+ */
+public class DirectoryFrameSource implements FrameSource {
+
+    private static final int MAX_READ_ATTEMPTS = 5;
+    private static final long RETRY_DELAY_MILLIS = 200;
+
+    private Logger log = LoggerFactory.getLogger(DirectoryFrameSource.class);
+
+    private final Path directory;
+    private final WatchService watchService;
+    //files waiting to be read, each at most once
+    private final Set<Path> pending = new LinkedHashSet<>();
+    //files that couldn't be decoded since they last changed, and how often that happened
+    private final Map<Path, Integer> failedReads = new HashMap<>();
+
+    /**
+     * @param directory Directory to watch
+     * @param includeExisting True to emit the frames already in the directory before watching for new ones
+     */
+    public DirectoryFrameSource(Path directory, boolean includeExisting) throws IOException {
+        this.directory = directory;
+        this.watchService = directory.getFileSystem().newWatchService();
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        if(includeExisting) {
+            try (Stream<Path> files = Files.list(directory)) {
+                files.filter(Files::isRegularFile).sorted().forEach(pending::add);
+            }
+        }
+    }
+
+    @Override
+    public BufferedImage nextFrame() throws IOException, InterruptedException {
+        while(true) {
+            for(Iterator<Path> it = pending.iterator(); it.hasNext(); ) {
+                Path file = it.next();
+                it.remove();
+                BufferedImage frame = read(file);
+                if(frame != null) {
+                    failedReads.remove(file);
+                    return frame;
+                }
+                readFailed(file);
+            }
+            WatchKey key;
+            try {
+                key = failedReads.isEmpty() ? watchService.take() : watchService.poll(RETRY_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (ClosedWatchServiceException e) {
+                return null;
+            }
+            if(key == null) {
+                //nothing changed for a while, so try the unreadable files again
+                pending.addAll(failedReads.keySet());
+                continue;
+            }
+            for(WatchEvent<?> event : key.pollEvents()) {
+                if(event.kind() == StandardWatchEventKinds.ENTRY_CREATE || event.kind() == StandardWatchEventKinds.ENTRY_MODIFY) {
+                    Path file = directory.resolve((Path) event.context());
+                    //a file that is still changing gets its full number of attempts once it stops
+                    failedReads.remove(file);
+                    pending.add(file);
+                }
+            }
+            if(!key.reset()) {
+                return null; //directory is gone
+            }
+        }
+    }
+
+    private void readFailed(Path file) {
+        if(!Files.isRegularFile(file)) {
+            failedReads.remove(file);
+            return;
+        }
+        int attempts = failedReads.merge(file, 1, Integer::sum);
+        if(attempts >= MAX_READ_ATTEMPTS) {
+            failedReads.remove(file);
+            log.warn("Giving up on frame {} after {} failed reads", file, attempts);
+        }
+    }
+
+    private BufferedImage read(Path file) {
+        try {
+            //null if no reader recognizes the file yet
+            return ImageIO.read(file.toFile());
+        } catch (IOException ioe) {
+            log.debug("Unable to read frame " + file, ioe);
+            return null;
+        }
+    }
+
+    /**
+     * Stops watching the directory. A thread blocked in {@link #nextFrame()} gets null.
+     */
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+}
@@ -0,0 +1,73 @@
+package com.udacity.catpoint.image.camera;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Cheap frame-to-frame change detection. Each frame is reduced to a small grayscale thumbnail and
+ * compared with the thumbnail of the last frame that was reported as changed. A frame counts as
+ * changed when enough thumbnail pixels moved by more than the pixel threshold, so sensor noise and
+ * compression artifacts are ignored but a cat walking into view is not. Comparing against the
+ * last reported frame rather than the previous one means slow drifts still add up to a change.
+ *
+ * Not thread-safe; use one detector per camera.
+ */
+public class FrameChangeDetector {
+
+    private static final int THUMBNAIL_WIDTH = 32;
+    private static final int THUMBNAIL_HEIGHT = 24;
+
+    private final int pixelThreshold;
+    private final double changedFraction;
+    private int[] baseline;
+
+    /**
+     * @param pixelThreshold Brightness difference (0-255) above which a thumbnail pixel counts as changed
+     * @param changedFraction Fraction of thumbnail pixels (0-1) that must change for the frame to count as changed
+     */
+    public FrameChangeDetector(int pixelThreshold, double changedFraction) {
+        this.pixelThreshold = pixelThreshold;
+        this.changedFraction = changedFraction;
+    }
+
+    /**
+     * @return true if the frame differs meaningfully from the last changed frame. The first frame always counts as changed.
+     */
+    public boolean hasChanged(BufferedImage frame) {
+        int[] thumbnail = thumbnail(frame);
+        if(baseline != null) {
+            int changed = 0;
+            for(int i = 0; i < thumbnail.length; i++) {
+                if(Math.abs(thumbnail[i] - baseline[i]) > pixelThreshold) {
+                    changed++;
+                }
+            }
+            if(changed < changedFraction * thumbnail.length) {
+                return false;
+            }
+        }
+        baseline = thumbnail;
+        return true;
+    }
+
+    /**
+     * Forgets the last changed frame, so the next frame counts as changed.
+     */
+    public void reset() {
+        baseline = null;
+    }
+
+    private static int[] thumbnail(BufferedImage frame) {
+        int width = frame.getWidth();
+        int height = frame.getHeight();
+        int[] thumbnail = new int[THUMBNAIL_WIDTH * THUMBNAIL_HEIGHT];
+        for(int ty = 0; ty < THUMBNAIL_HEIGHT; ty++) {
+            int y = (int) ((ty + 0.5) * height / THUMBNAIL_HEIGHT);
+            for(int tx = 0; tx < THUMBNAIL_WIDTH; tx++) {
+                int x = (int) ((tx + 0.5) * width / THUMBNAIL_WIDTH);
+                int rgb = frame.getRGB(x, y);
+                thumbnail[ty * THUMBNAIL_WIDTH + tx] = (((rgb >> 16) & 0xff) * 299 + ((rgb >> 8) & 0xff) * 587 + (rgb & 0xff) * 114) / 1000;
+            }
+        }
+        return thumbnail;
+    }
+}
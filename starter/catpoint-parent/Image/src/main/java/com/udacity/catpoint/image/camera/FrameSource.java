@@ -0,0 +1,20 @@
+package com.udacity.catpoint.image.camera;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+/**
+ * A stream of camera frames.
+ */
+public interface FrameSource extends AutoCloseable {
+
+    /**
+     * Blocks until the next frame is available.
+     * @return the next frame, or null once the source is exhausted
+     */
+    BufferedImage nextFrame() throws IOException, InterruptedException;
+
+    @Override
+    default void close() throws IOException {
+    }
+}
@@ -4,20 +4,31 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.AwsCredentials;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
 import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
+import software.amazon.awssdk.core.retry.RetryPolicy;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.rekognition.RekognitionClient;
+import software.amazon.awssdk.services.rekognition.RekognitionClientBuilder;
 import software.amazon.awssdk.services.rekognition.model.DetectLabelsRequest;
 import software.amazon.awssdk.services.rekognition.model.DetectLabelsResponse;
 import software.amazon.awssdk.services.rekognition.model.Image;
 
-import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
@@ -32,32 +43,70 @@ import java.util.stream.Collectors;
  *      aws.id=[your access key id]
  *      aws.secret=[your Secret access key]
  *      aws.region=[an aws region of choice. For example: us-east-2]
+ *
+ * An optional aws.endpoint property sends requests to a different endpoint, such as a local stub.
+ * Every call is bounded by an overall deadline and a per-attempt deadline, with at most one retry.
+ * Wrap this service in a {@link ResilientImageService} to add hedging and a fallback classifier.
  */
 public class AwsImageService implements ImageServiceInterface {
 
     private Logger log = LoggerFactory.getLogger(AwsImageService.class);
 
-    //aws recommendation is to maintain only a single instance of client objects
-    private static RekognitionClient rekognitionClient;
+    //rekognition gains nothing from frames larger than this, and smaller payloads upload faster
+    private static final int MAX_IMAGE_WIDTH = 1280;
+    private static final int MAX_IMAGE_HEIGHT = 960;
+    private static final float JPEG_QUALITY = 0.85f;
+    //requests spend nearly all their time waiting on the network, so allow more of them than there are cores
+    private static final int MAX_CONCURRENT_REQUESTS = 16;
+    //a scan that takes longer than this is no longer useful to the alarm
+    private static final Duration API_CALL_TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration API_CALL_ATTEMPT_TIMEOUT = Duration.ofSeconds(4);
+    private static final int MAX_RETRIES = 1;
+
+    //aws recommendation is to maintain only a single instance of client objects, so every request shares this one
+    private volatile RekognitionClient rekognitionClient;
+
+    private final ImagePreprocessor preprocessor;
 
     public AwsImageService() {
-        Properties props = new Properties();
-        try (InputStream is = getClass().getClassLoader().getResourceAsStream("config.properties")) {
-            props.load(is);
-        } catch (IOException ioe ) {
-            log.error("Unable to initialize AWS Rekognition, no properties file found", ioe);
-            return;
-        }
+        this(new ImagePreprocessor(MAX_IMAGE_WIDTH, MAX_IMAGE_HEIGHT, JPEG_QUALITY));
+    }
 
-        String awsId = props.getProperty("aws.id");
-        String awsSecret = props.getProperty("aws.secret");
-        String awsRegion = props.getProperty("aws.region");
+    /**
+     * The client is only created, from config.properties, when the first image is scanned, so
+     * constructing the service is cheap even when it is never used.
+     * @param preprocessor Scales and encodes images before they are uploaded
+     */
+    public AwsImageService(ImagePreprocessor preprocessor) {
+        this.preprocessor = preprocessor;
+    }
 
-        AwsCredentials awsCredentials = AwsBasicCredentials.create(awsId, awsSecret);
-        rekognitionClient = RekognitionClient.builder()
-                .credentialsProvider(StaticCredentialsProvider.create(awsCredentials))
-                .region(Region.of(awsRegion))
-                .build();
+    /**
+     * @param rekognitionClient Client to send requests with, for example one built by {@link #buildClient}
+     * @param preprocessor Scales and encodes images before they are uploaded
+     */
+    public AwsImageService(RekognitionClient rekognitionClient, ImagePreprocessor preprocessor) {
+        this.rekognitionClient = rekognitionClient;
+        this.preprocessor = preprocessor;
+    }
+
+    /**
+     * Builds a client that gives up on slow calls instead of blocking indefinitely.
+     * @param endpointOverride Endpoint to send requests to instead of the region's, or null
+     */
+    public static RekognitionClient buildClient(AwsCredentialsProvider credentialsProvider, Region region, URI endpointOverride) {
+        RekognitionClientBuilder builder = RekognitionClient.builder()
+                .credentialsProvider(credentialsProvider)
+                .region(region)
+                .overrideConfiguration(ClientOverrideConfiguration.builder()
+                        .apiCallTimeout(API_CALL_TIMEOUT)
+                        .apiCallAttemptTimeout(API_CALL_ATTEMPT_TIMEOUT)
+                        .retryPolicy(RetryPolicy.builder().numRetries(MAX_RETRIES).build())
+                        .build());
+        if(endpointOverride != null) {
+            builder.endpointOverride(endpointOverride);
+        }
+        return builder.build();
     }
 
     /**
@@ -68,23 +117,90 @@ public class AwsImageService implements ImageServiceInterface {
      */
     @Override
     public boolean imageContainsCat(BufferedImage image, float confidenceThreshhold) {
-        Image awsImage = null;
-        try (ByteArrayOutputStream os = new ByteArrayOutputStream()) {
-            ImageIO.write(image, "jpg", os);
-            awsImage = Image.builder().bytes(SdkBytes.fromByteArray(os.toByteArray())).build();
+        Image awsImage = encode(image);
+        return awsImage != null && detectCat(awsImage, confidenceThreshhold);
+    }
+
+    /**
+     * Classifies the images as a pipeline: frames are encoded on the shared pool sized to the
+     * available cores, and each one is sent to Rekognition as soon as it is encoded, so encoding later
+     * frames overlaps with waiting for the answers to earlier ones.
+     */
+    @Override
+    public List<Boolean> imagesContainCat(List<BufferedImage> images, float confidenceThreshhold) {
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>(images.size());
+        for(BufferedImage image : images) {
+            futures.add(CompletableFuture.supplyAsync(() -> encode(image), BatchExecutor.shared())
+                    .thenApplyAsync(awsImage -> awsImage != null && detectCat(awsImage, confidenceThreshhold), RequestExecutor.EXECUTOR));
+        }
+        return BatchExecutor.joinAll(futures);
+    }
+
+    /**
+     * @return the image ready to upload, or null if it couldn't be encoded
+     */
+    private Image encode(BufferedImage image) {
+        try {
+            return Image.builder().bytes(SdkBytes.fromByteArrayUnsafe(preprocessor.toJpeg(image))).build();
         } catch (IOException ioe) {
             log.error("Error building image byte array", ioe);
-            return false;
+            return null;
         }
+    }
+
+    private boolean detectCat(Image awsImage, float confidenceThreshhold) {
         DetectLabelsRequest detectLabelsRequest = DetectLabelsRequest.builder().image(awsImage).minConfidence(confidenceThreshhold).build();
-        DetectLabelsResponse response = rekognitionClient.detectLabels(detectLabelsRequest);
+        DetectLabelsResponse response = client().detectLabels(detectLabelsRequest);
         logLabelsForFun(response);
         return response.labels().stream().filter(l -> l.name().toLowerCase().contains("cat")).findFirst().isPresent();
     }
 
+    private RekognitionClient client() {
+        RekognitionClient client = rekognitionClient;
+        if(client == null) {
+            synchronized (this) {
+                client = rekognitionClient;
+                if(client == null) {
+                    client = rekognitionClient = createClient();
+                }
+            }
+        }
+        return client;
+    }
+
+    private RekognitionClient createClient() {
+        Properties props = new Properties();
+        try (InputStream is = getClass().getClassLoader().getResourceAsStream("config.properties")) {
+            if(is == null) {
+                throw new IllegalStateException("Unable to initialize AWS Rekognition, no properties file found");
+            }
+            props.load(is);
+        } catch (IOException ioe ) {
+            log.error("Unable to initialize AWS Rekognition, no properties file found", ioe);
+            throw new UncheckedIOException(ioe);
+        }
+
+        String awsId = props.getProperty("aws.id");
+        String awsSecret = props.getProperty("aws.secret");
+        String awsRegion = props.getProperty("aws.region");
+        String awsEndpoint = props.getProperty("aws.endpoint");
+
+        long start = System.nanoTime();
+        AwsCredentials awsCredentials = AwsBasicCredentials.create(awsId, awsSecret);
+        RekognitionClient client = buildClient(StaticCredentialsProvider.create(awsCredentials), Region.of(awsRegion),
+                awsEndpoint == null ? null : URI.create(awsEndpoint));
+        log.info("Created Rekognition client in {} ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return client;
+    }
+
     private void logLabelsForFun(DetectLabelsResponse response) {
         log.info(response.labels().stream()
                 .map(label -> String.format("%s(%.1f%%)", label.name(), label.confidence()))
                 .collect(Collectors.joining(", ")));
     }
+
+    private static final class RequestExecutor {
+        private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(MAX_CONCURRENT_REQUESTS,
+                BatchExecutor.daemonThreads("catpoint-rekognition"));
+    }
 }
@@ -0,0 +1,76 @@
+package com.udacity.catpoint.image.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared thread pool for batch classification. It has one thread per available core and a bounded
+ * queue. When the queue is full the submitting thread runs the task itself, so a very large batch
+ * slows its caller down instead of piling up frames in memory.
+ */
+final class BatchExecutor {
+
+    static final int PARALLELISM = Runtime.getRuntime().availableProcessors();
+    private static final int QUEUE_PER_THREAD = 4;
+
+    private BatchExecutor() {
+    }
+
+    /**
+     * @return the shared pool, which is created the first time a batch is classified
+     */
+    static ExecutorService shared() {
+        return Holder.EXECUTOR;
+    }
+
+    /**
+     * Waits for every future and returns their results in the same order.
+     * @throws RuntimeException the first failure, unwrapped from its CompletionException
+     */
+    static <T> List<T> joinAll(List<CompletableFuture<T>> futures) {
+        List<T> results = new ArrayList<>(futures.size());
+        try {
+            for(CompletableFuture<T> future : futures) {
+                results.add(future.join());
+            }
+        } catch (CompletionException e) {
+            futures.forEach(f -> f.cancel(false));
+            if(e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+        return results;
+    }
+
+    static ThreadFactory daemonThreads(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, name + "-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    private static final class Holder {
+        private static final ExecutorService EXECUTOR = create();
+
+        private static ExecutorService create() {
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(PARALLELISM, PARALLELISM, 30, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(PARALLELISM * QUEUE_PER_THREAD),
+                    daemonThreads("catpoint-image-batch"),
+                    new ThreadPoolExecutor.CallerRunsPolicy());
+            //idle cameras shouldn't keep a thread per core around
+            executor.allowCoreThreadTimeOut(true);
+            return executor;
+        }
+    }
+}
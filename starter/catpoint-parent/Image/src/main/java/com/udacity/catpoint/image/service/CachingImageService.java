@@ -0,0 +1,170 @@
+package com.udacity.catpoint.image.service;
+
+import java.awt.image.BufferedImage;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Image service decorator that remembers recent answers. Images are keyed by their perceptual
+ * {@link ImageFingerprint} together with the confidence threshold, so identical or nearly identical
+ * camera frames are only sent to the wrapped service once. A frame whose fingerprint is within the
+ * configured number of bits of a cached one counts as a hit. Entries expire after a fixed time to
+ * live, and the least recently used entry is evicted once the cache is full. Expired entries are
+ * dropped as soon as a lookup comes across them.
+ */
+public class CachingImageService implements ImageServiceInterface {
+
+    private final ImageServiceInterface delegate;
+    private final long ttlNanos;
+    private final int maxDistance;
+    private final LongSupplier clock;
+    private final Map<Key, CachedResult> cache;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param delegate The service answering cache misses
+     * @param maxEntries Maximum number of answers to remember
+     * @param ttl How long an answer stays valid
+     * @param maxDistance Number of fingerprint bits two frames may differ by and still share an answer. 0 requires an exact match.
+     */
+    public CachingImageService(ImageServiceInterface delegate, int maxEntries, Duration ttl, int maxDistance) {
+        this(delegate, maxEntries, ttl, maxDistance, System::nanoTime);
+    }
+
+    /**
+     * @param clock Source of the time entries are created and looked up at, in nanoseconds
+     */
+    public CachingImageService(ImageServiceInterface delegate, int maxEntries, Duration ttl, int maxDistance, LongSupplier clock) {
+        if(maxEntries <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive: " + maxEntries);
+        }
+        this.delegate = delegate;
+        this.ttlNanos = ttl.toNanos();
+        this.maxDistance = maxDistance;
+        this.clock = clock;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, CachedResult> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    @Override
+    public boolean imageContainsCat(BufferedImage image, float confidenceThreshhold) {
+        Key key = new Key(ImageFingerprint.of(image), confidenceThreshhold);
+        long now = clock.getAsLong();
+        synchronized (cache) {
+            CachedResult entry = cache.get(key);
+            if(entry != null && isExpired(entry, now)) {
+                cache.remove(key);
+                entry = null;
+            }
+            if(entry == null && maxDistance > 0) {
+                entry = findNearest(key, now);
+            }
+            if(entry != null) {
+                hits.increment();
+                return entry.containsCat;
+            }
+        }
+        misses.increment();
+        boolean containsCat = delegate.imageContainsCat(image, confidenceThreshhold);
+        synchronized (cache) {
+            cache.put(key, new CachedResult(containsCat, now));
+        }
+        return containsCat;
+    }
+
+    /**
+     * Looks for an unexpired cached frame close enough to the provided one, evicting expired entries
+     * it passes. Must be called while holding the cache lock.
+     */
+    private CachedResult findNearest(Key key, long now) {
+        Key nearest = null;
+        int nearestDistance = maxDistance + 1;
+        for(Iterator<Map.Entry<Key, CachedResult>> it = cache.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Key, CachedResult> cached = it.next();
+            if(isExpired(cached.getValue(), now)) {
+                it.remove();
+                continue;
+            }
+            Key candidate = cached.getKey();
+            if(candidate.confidenceThreshhold == key.confidenceThreshhold && candidate.fingerprint.sameSize(key.fingerprint)) {
+                int distance = candidate.fingerprint.distance(key.fingerprint);
+                if(distance < nearestDistance) {
+                    nearest = candidate;
+                    nearestDistance = distance;
+                }
+            }
+        }
+        //look the entry up properly so it counts as recently used
+        return nearest == null ? null : cache.get(nearest);
+    }
+
+    private boolean isExpired(CachedResult entry, long now) {
+        return now - entry.createdNanos >= ttlNanos;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the number of answers currently remembered, including expired ones not yet dropped
+     */
+    public int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    public void clear() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    private static class Key {
+        private final ImageFingerprint fingerprint;
+        private final float confidenceThreshhold;
+
+        private Key(ImageFingerprint fingerprint, float confidenceThreshhold) {
+            this.fingerprint = fingerprint;
+            this.confidenceThreshhold = confidenceThreshhold;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return Float.compare(key.confidenceThreshhold, confidenceThreshhold) == 0 && fingerprint.equals(key.fingerprint);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(fingerprint, confidenceThreshhold);
+        }
+    }
+
+    private static class CachedResult {
+        private final boolean containsCat;
+        private final long createdNanos;
+
+        private CachedResult(boolean containsCat, long createdNanos) {
+            this.containsCat = containsCat;
+            this.createdNanos = createdNanos;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.udacity.catpoint.image.service;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Stops calling a service that keeps failing. After a number of consecutive failures the breaker
+ * opens and rejects every request for a cool-down period. It then lets a single trial request
+ * through: if that succeeds the breaker closes again, otherwise it stays open for another period.
+ * Safe to use from multiple threads.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openNanos;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAtNanos;
+    private final LongAdder timesOpened = new LongAdder();
+
+    /**
+     * @param failureThreshold Consecutive failures that open the breaker
+     * @param openDuration How long the breaker stays open before allowing a trial request
+     */
+    public CircuitBreaker(int failureThreshold, Duration openDuration) {
+        if(failureThreshold <= 0) {
+            throw new IllegalArgumentException("Failure threshold must be positive: " + failureThreshold);
+        }
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openDuration.toNanos();
+    }
+
+    /**
+     * @return true if the caller may send a request. A caller that gets true must report the outcome
+     * with {@link #recordSuccess()} or {@link #recordFailure()}, or with {@link #recordNotSent()}
+     * if the request never reached the service.
+     */
+    public synchronized boolean allowRequest() {
+        return switch (state) {
+            case CLOSED -> true;
+            case OPEN -> {
+                if(System.nanoTime() - openedAtNanos >= openNanos) {
+                    state = State.HALF_OPEN;
+                    yield true;
+                }
+                yield false;
+            }
+            //a trial request is already on its way
+            case HALF_OPEN -> false;
+        };
+    }
+
+    public synchronized void recordSuccess() {
+        consecutiveFailures = 0;
+        state = State.CLOSED;
+    }
+
+    public synchronized void recordFailure() {
+        consecutiveFailures++;
+        if(state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            state = State.OPEN;
+            openedAtNanos = System.nanoTime();
+            timesOpened.increment();
+        }
+    }
+
+    /**
+     * Reports that an allowed request was never sent, for example because there was no thread to
+     * send it on. It says nothing about the service, so it isn't counted, and if it was the trial
+     * request the next caller gets to send one instead.
+     */
+    public synchronized void recordNotSent() {
+        if(state == State.HALF_OPEN) {
+            //openedAtNanos is unchanged, so the cool-down has already passed
+            state = State.OPEN;
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * @return how many times the breaker has opened since it was created
+     */
+    public long getTimesOpened() {
+        return timesOpened.sum();
+    }
+}
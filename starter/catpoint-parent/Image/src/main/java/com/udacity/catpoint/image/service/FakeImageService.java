@@ -1,16 +1,55 @@
 package com.udacity.catpoint.image.service;
 
 import java.awt.image.BufferedImage;
+import java.time.Duration;
 import java.util.Random;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * Service that tries to guess if an image displays a cat.
+ *
+ * Created with a seed, it gives the same sequence of answers on every run, so load tests and
+ * benchmarks can be reproduced and compared. It can also pretend to take as long as a real
+ * classifier.
  */
 public class FakeImageService implements ImageServiceInterface{
-    private final Random r = new Random();
+    private final Random r;
+    private final double catProbability;
+    private final long latencyNanos;
+
+    public FakeImageService() {
+        this(new Random(), 0.5, Duration.ZERO);
+    }
+
+    /**
+     * @param seed Seed for the answers. Equal seeds give equal answers, call for call.
+     */
+    public FakeImageService(long seed) {
+        this(seed, 0.5, Duration.ZERO);
+    }
+
+    /**
+     * @param catProbability Chance (0-1) that any one image is reported to contain a cat
+     * @param latency How long each call blocks before answering
+     */
+    public FakeImageService(long seed, double catProbability, Duration latency) {
+        this(new Random(seed), catProbability, latency);
+    }
+
+    private FakeImageService(Random r, double catProbability, Duration latency) {
+        this.r = r;
+        this.catProbability = catProbability;
+        this.latencyNanos = latency.toNanos();
+    }
 
     @Override
     public boolean imageContainsCat(BufferedImage image, float confidenceThreshhold) {
-        return r.nextBoolean();
+        if(latencyNanos > 0) {
+            long deadline = System.nanoTime() + latencyNanos;
+            for(long remaining = latencyNanos; remaining > 0; remaining = deadline - System.nanoTime()) {
+                LockSupport.parkNanos(remaining);
+            }
+        }
+        return r.nextDouble() < catProbability;
     }
 }
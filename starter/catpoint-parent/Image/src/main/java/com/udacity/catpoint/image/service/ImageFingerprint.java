@@ -0,0 +1,97 @@
+package com.udacity.catpoint.image.service;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Perceptual fingerprint of an image, used to recognize frames we've already classified. The hash
+ * is a 64 bit difference hash: the image is reduced to a 9x8 grid of average brightness values and
+ * each bit records whether a cell is brighter than its right-hand neighbour. Re-encoded, slightly
+ * noisy or rescaled copies of the same frame produce the same hash.
+ */
+public final class ImageFingerprint {
+
+    private static final int GRID_WIDTH = 9;
+    private static final int GRID_HEIGHT = 8;
+    //pixels sampled along each axis of a grid cell. Averaging a few samples keeps the hash stable without reading every pixel
+    private static final int SAMPLES_PER_CELL = 4;
+
+    private final long hash;
+    private final int width;
+    private final int height;
+
+    private ImageFingerprint(long hash, int width, int height) {
+        this.hash = hash;
+        this.width = width;
+        this.height = height;
+    }
+
+    public static ImageFingerprint of(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        double[] brightness = new double[GRID_WIDTH * GRID_HEIGHT];
+        for(int gy = 0; gy < GRID_HEIGHT; gy++) {
+            for(int gx = 0; gx < GRID_WIDTH; gx++) {
+                double total = 0;
+                for(int sy = 0; sy < SAMPLES_PER_CELL; sy++) {
+                    int y = (int) (((gy + (sy + 0.5) / SAMPLES_PER_CELL) * height) / GRID_HEIGHT);
+                    for(int sx = 0; sx < SAMPLES_PER_CELL; sx++) {
+                        int x = (int) (((gx + (sx + 0.5) / SAMPLES_PER_CELL) * width) / GRID_WIDTH);
+                        total += luminance(image.getRGB(Math.min(x, width - 1), Math.min(y, height - 1)));
+                    }
+                }
+                brightness[gy * GRID_WIDTH + gx] = total;
+            }
+        }
+
+        long hash = 0;
+        for(int gy = 0; gy < GRID_HEIGHT; gy++) {
+            for(int gx = 0; gx < GRID_WIDTH - 1; gx++) {
+                hash <<= 1;
+                if(brightness[gy * GRID_WIDTH + gx] > brightness[gy * GRID_WIDTH + gx + 1]) {
+                    hash |= 1;
+                }
+            }
+        }
+        return new ImageFingerprint(hash, width, height);
+    }
+
+    private static double luminance(int rgb) {
+        return 0.299 * ((rgb >> 16) & 0xff) + 0.587 * ((rgb >> 8) & 0xff) + 0.114 * (rgb & 0xff);
+    }
+
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * @return the number of hash bits that differ between the two fingerprints
+     */
+    public int distance(ImageFingerprint other) {
+        return Long.bitCount(hash ^ other.hash);
+    }
+
+    /**
+     * @return true if both fingerprints were taken from images with the same dimensions
+     */
+    public boolean sameSize(ImageFingerprint other) {
+        return width == other.width && height == other.height;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ImageFingerprint that = (ImageFingerprint) o;
+        return hash == that.hash && width == that.width && height == that.height;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(hash) * 31 * 31 + width * 31 + height;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%016x(%dx%d)", hash, width, height);
+    }
+}
@@ -0,0 +1,117 @@
+package com.udacity.catpoint.image.service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Prepares images before they are sent to a classifier. Images larger than the classifier can
+ * make use of are scaled down to fit within a maximum size, keeping their aspect ratio, and every
+ * image is converted to the plain TYPE_INT_RGB color model. Images can then be encoded to JPEG at
+ * a fixed quality.
+ *
+ * Each ImageServiceInterface implementation can use its own preprocessor, sized for the model
+ * behind it. Instances are immutable and can be shared between threads.
+ */
+public class ImagePreprocessor {
+
+    private final int maxWidth;
+    private final int maxHeight;
+    private final float jpegQuality;
+
+    /**
+     * @param maxWidth Largest width worth sending to the classifier
+     * @param maxHeight Largest height worth sending to the classifier
+     * @param jpegQuality JPEG quality from 0 (smallest) to 1 (best)
+     */
+    public ImagePreprocessor(int maxWidth, int maxHeight, float jpegQuality) {
+        if(maxWidth <= 0 || maxHeight <= 0) {
+            throw new IllegalArgumentException("Maximum size must be positive: " + maxWidth + "x" + maxHeight);
+        }
+        if(jpegQuality < 0 || jpegQuality > 1) {
+            throw new IllegalArgumentException("JPEG quality must be between 0 and 1: " + jpegQuality);
+        }
+        this.maxWidth = maxWidth;
+        this.maxHeight = maxHeight;
+        this.jpegQuality = jpegQuality;
+    }
+
+    /**
+     * Scales the image down to fit within the maximum size and converts it to TYPE_INT_RGB.
+     * @return the provided image itself if it is already small enough and uses that color model
+     */
+    public BufferedImage prepare(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        double scale = Math.min(1.0, Math.min((double) maxWidth / width, (double) maxHeight / height));
+        int targetWidth = Math.max(1, (int) Math.round(width * scale));
+        int targetHeight = Math.max(1, (int) Math.round(height * scale));
+
+        if(scale == 1.0) {
+            return image.getType() == BufferedImage.TYPE_INT_RGB ? image : redraw(image, width, height);
+        }
+
+        //bilinear filtering only looks at neighbouring pixels, so halve the image until we are
+        //within a factor of two of the target to keep large reductions from aliasing
+        BufferedImage scaled = image;
+        while(width / 2 >= targetWidth && height / 2 >= targetHeight) {
+            width /= 2;
+            height /= 2;
+            scaled = redraw(scaled, width, height);
+        }
+        if(width != targetWidth || height != targetHeight || scaled.getType() != BufferedImage.TYPE_INT_RGB) {
+            scaled = redraw(scaled, targetWidth, targetHeight);
+        }
+        return scaled;
+    }
+
+    /**
+     * Prepares the image and encodes it to JPEG at the configured quality.
+     */
+    public byte[] toJpeg(BufferedImage image) throws IOException {
+        BufferedImage prepared = prepare(image);
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(jpegQuality);
+
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        try (ImageOutputStream ios = ImageIO.createImageOutputStream(os)) {
+            writer.setOutput(ios);
+            writer.write(null, new IIOImage(prepared, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return os.toByteArray();
+    }
+
+    public int getMaxWidth() {
+        return maxWidth;
+    }
+
+    public int getMaxHeight() {
+        return maxHeight;
+    }
+
+    public float getJpegQuality() {
+        return jpegQuality;
+    }
+
+    private static BufferedImage redraw(BufferedImage image, int width, int height) {
+        BufferedImage result = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = result.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+        return result;
+    }
+}
@@ -1,8 +1,41 @@
 package com.udacity.catpoint.image.service;
 
 import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 public interface ImageServiceInterface {
     public boolean imageContainsCat(BufferedImage image, float confidenceThreshhold);
 
+    /**
+     * Non-blocking variant of {@link #imageContainsCat(BufferedImage, float)}. By default the blocking
+     * call simply runs on the provided executor; implementations with a natively asynchronous client
+     * can override this to avoid tying up a thread per request.
+     * @param executor Executor to run blocking work on
+     * @return a future completed with true if the image contains a cat
+     */
+    public default CompletableFuture<Boolean> imageContainsCatAsync(BufferedImage image, float confidenceThreshhold, Executor executor) {
+        return CompletableFuture.supplyAsync(() -> imageContainsCat(image, confidenceThreshhold), executor);
+    }
+
+    /**
+     * Classifies several images at once, for example one frame from every camera. By default the
+     * images are classified in parallel on a shared pool sized to the available cores.
+     * @param images Images to scan
+     * @return for each image, in the same order, true if it contains a cat
+     */
+    public default List<Boolean> imagesContainCat(List<BufferedImage> images, float confidenceThreshhold) {
+        if(images.size() <= 1) {
+            List<Boolean> results = new ArrayList<>(images.size());
+            images.forEach(image -> results.add(imageContainsCat(image, confidenceThreshhold)));
+            return results;
+        }
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>(images.size());
+        for(BufferedImage image : images) {
+            futures.add(imageContainsCatAsync(image, confidenceThreshhold, BatchExecutor.shared()));
+        }
+        return BatchExecutor.joinAll(futures);
+    }
 }
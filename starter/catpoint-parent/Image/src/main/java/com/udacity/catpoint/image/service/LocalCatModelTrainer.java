@@ -0,0 +1,196 @@
+package com.udacity.catpoint.image.service;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Fits the logistic regression weights used by {@link LocalImageService} to folders of labeled
+ * images and writes them in the format of local-cat-model.properties.
+ *
+ * A share of the images of each label is held out before anything is fitted, and the model is
+ * scored on those, so the reported accuracy says something about images it hasn't seen. Crops
+ * are only taken from the training images, so no part of a held-out image ends up in training.
+ * Runs with the same options and images give the same weights.
+ *
+ * Run with: java -cp Image.jar com.udacity.catpoint.image.service.LocalCatModelTrainer [options]
+ *   --cats [dir]         images that show a cat
+ *   --not-cats [dir]     images that don't
+ *   --holdout [0-1]      share of each label kept out of training for evaluation (0.25)
+ *   --crops [n]          random crops added per training image (0)
+ *   --seed [n]           seed for the hold-out split and the crops (42)
+ *   --out [file]         where to write the model, standard output if not set
+ */
+public final class LocalCatModelTrainer {
+
+    private static final int ITERATIONS = 5000;
+    private static final double LEARNING_RATE = 0.5;
+    private static final double L2 = 0.001;
+    //crops cover between this share and all of each side of the image
+    private static final double MIN_CROP = 0.5;
+
+    private Path cats;
+    private Path notCats;
+    private double holdout = 0.25;
+    private int crops;
+    private long seed = 42;
+    private Path out;
+
+    private LocalCatModelTrainer() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        LocalCatModelTrainer trainer = new LocalCatModelTrainer();
+        trainer.parseArgs(args);
+        trainer.run();
+    }
+
+    private void parseArgs(String[] args) {
+        for(int i = 0; i < args.length; i++) {
+            String option = args[i];
+            if(i + 1 >= args.length) {
+                throw new IllegalArgumentException(option + " needs a value");
+            }
+            String value = args[++i];
+            switch (option) {
+                case "--cats" -> cats = Paths.get(value);
+                case "--not-cats" -> notCats = Paths.get(value);
+                case "--holdout" -> holdout = Double.parseDouble(value);
+                case "--crops" -> crops = Integer.parseInt(value);
+                case "--seed" -> seed = Long.parseLong(value);
+                case "--out" -> out = Paths.get(value);
+                default -> throw new IllegalArgumentException("Unknown option: " + option);
+            }
+        }
+        if(cats == null || notCats == null) {
+            throw new IllegalArgumentException("--cats and --not-cats are required");
+        }
+    }
+
+    private void run() throws IOException {
+        Random random = new Random(seed);
+        List<double[]> trainFeatures = new ArrayList<>();
+        List<Boolean> trainLabels = new ArrayList<>();
+        List<double[]> testFeatures = new ArrayList<>();
+        List<Boolean> testLabels = new ArrayList<>();
+        for(boolean cat : new boolean[] {true, false}) {
+            List<Path> images = listImages(cat ? cats : notCats);
+            Collections.shuffle(images, random);
+            int held = (int) Math.round(images.size() * holdout);
+            for(int i = 0; i < images.size(); i++) {
+                BufferedImage image = ImageIO.read(images.get(i).toFile());
+                if(i < held) {
+                    testFeatures.add(LocalImageService.features(image));
+                    testLabels.add(cat);
+                    continue;
+                }
+                trainFeatures.add(LocalImageService.features(image));
+                trainLabels.add(cat);
+                for(int c = 0; c < crops; c++) {
+                    trainFeatures.add(LocalImageService.features(randomCrop(image, random)));
+                    trainLabels.add(cat);
+                }
+            }
+        }
+        if(trainFeatures.isEmpty()) {
+            throw new IllegalArgumentException("No images left to train on");
+        }
+
+        double[] model = fit(trainFeatures, trainLabels);
+        System.err.printf("training accuracy  %.3f on %d images%n", accuracy(model, trainFeatures, trainLabels), trainFeatures.size());
+        if(testFeatures.isEmpty()) {
+            System.err.println("held-out accuracy  none, every image was used for training");
+        } else {
+            System.err.printf("held-out accuracy  %.3f on %d images%n", accuracy(model, testFeatures, testLabels), testFeatures.size());
+        }
+
+        try (PrintWriter writer = out == null ? new PrintWriter(System.out) : new PrintWriter(Files.newBufferedWriter(out))) {
+            writer.println("# Logistic regression weights for LocalImageService, written by LocalCatModelTrainer.");
+            writer.printf("# --cats %s --not-cats %s --holdout %s --crops %d --seed %d%n", cats, notCats, holdout, crops, seed);
+            writer.println("weights=" + Arrays.stream(model, 0, LocalImageService.FEATURE_COUNT)
+                    .mapToObj(w -> String.format(Locale.ROOT, "%.3f", w))
+                    .collect(Collectors.joining(", ")));
+            writer.println(String.format(Locale.ROOT, "bias=%.3f", model[LocalImageService.FEATURE_COUNT]));
+        }
+    }
+
+    /**
+     * Fits a logistic regression by full-batch gradient descent with a little L2 regularization.
+     * @return the weights, one per feature, followed by the bias
+     */
+    static double[] fit(List<double[]> features, List<Boolean> labels) {
+        int n = LocalImageService.FEATURE_COUNT;
+        double[] model = new double[n + 1];
+        double[] gradient = new double[n + 1];
+        for(int iteration = 0; iteration < ITERATIONS; iteration++) {
+            Arrays.fill(gradient, 0);
+            for(int s = 0; s < features.size(); s++) {
+                double[] x = features.get(s);
+                double error = probability(model, x) - (labels.get(s) ? 1 : 0);
+                for(int i = 0; i < n; i++) {
+                    gradient[i] += error * x[i];
+                }
+                gradient[n] += error;
+            }
+            for(int i = 0; i <= n; i++) {
+                double penalty = i < n ? L2 * model[i] : 0;
+                model[i] -= LEARNING_RATE * (gradient[i] / features.size() + penalty);
+            }
+        }
+        return model;
+    }
+
+    /**
+     * @return the share of samples the model puts on the right side of 50%
+     */
+    static double accuracy(double[] model, List<double[]> features, List<Boolean> labels) {
+        int correct = 0;
+        for(int s = 0; s < features.size(); s++) {
+            if(probability(model, features.get(s)) >= 0.5 == labels.get(s)) {
+                correct++;
+            }
+        }
+        return (double) correct / features.size();
+    }
+
+    private static double probability(double[] model, double[] x) {
+        int n = LocalImageService.FEATURE_COUNT;
+        double z = model[n];
+        for(int i = 0; i < n; i++) {
+            z += model[i] * x[i];
+        }
+        return 1.0 / (1.0 + Math.exp(-z));
+    }
+
+    private static BufferedImage randomCrop(BufferedImage image, Random random) {
+        int width = (int) (image.getWidth() * (MIN_CROP + random.nextDouble() * (1 - MIN_CROP)));
+        int height = (int) (image.getHeight() * (MIN_CROP + random.nextDouble() * (1 - MIN_CROP)));
+        int x = random.nextInt(image.getWidth() - width + 1);
+        int y = random.nextInt(image.getHeight() - height + 1);
+        return image.getSubimage(x, y, width, height);
+    }
+
+    private static List<Path> listImages(Path dir) {
+        try (Stream<Path> files = Files.list(dir)) {
+            //sorted first, so the shuffle only depends on the seed
+            return files.filter(f -> f.getFileName().toString().toLowerCase(Locale.ROOT).matches(".*\\.(jpe?g|png|gif|bmp)"))
+                    .sorted()
+                    .collect(Collectors.toCollection(ArrayList::new));
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to list " + dir, ioe);
+        }
+    }
+}
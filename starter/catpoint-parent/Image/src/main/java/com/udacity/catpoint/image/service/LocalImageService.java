@@ -0,0 +1,164 @@
+package com.udacity.catpoint.image.service;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Properties;
+
+/**
+ * Image service that classifies images on the local CPU, without a network round trip. Each image
+ * is reduced to a small thumbnail from which a handful of color and texture features are computed
+ * (warm fur-like tones and their texture, green and sky-blue coverage, edge orientation and strength). A logistic
+ * regression model turns those features into a cat probability, which is compared with the
+ * confidence threshold.
+ *
+ * The model weights are loaded from local-cat-model.properties once, the first time any instance
+ * is used, and shared by every instance and thread. Results are deterministic. The bundled model was
+ * fitted to the three sample images in this project and hasn't been validated on any others, so it
+ * is experimental and not used by default. {@link LocalCatModelTrainer} refits it from labeled images,
+ * keeping some back to measure its accuracy.
+ */
+public class LocalImageService implements ImageServiceInterface {
+
+    static final int FEATURE_COUNT = 13;
+    private static final int THUMBNAIL_WIDTH = 64;
+    private static final int THUMBNAIL_HEIGHT = 48;
+
+    @Override
+    public boolean imageContainsCat(BufferedImage image, float confidenceThreshhold) {
+        return catConfidence(image) >= confidenceThreshhold;
+    }
+
+    /**
+     * @return the model's confidence, from 0 to 100, that the image shows a cat
+     */
+    public float catConfidence(BufferedImage image) {
+        Model model = Model.INSTANCE;
+        double[] features = features(image);
+        double z = model.bias;
+        for(int i = 0; i < FEATURE_COUNT; i++) {
+            z += model.weights[i] * features[i];
+        }
+        return (float) (100.0 / (1.0 + Math.exp(-z)));
+    }
+
+    /**
+     * Computes the feature vector the model works on. Every feature lies roughly between 0 and 1.
+     */
+    static double[] features(BufferedImage image) {
+        float[] hue = new float[THUMBNAIL_WIDTH * THUMBNAIL_HEIGHT];
+        float[] saturation = new float[hue.length];
+        float[] value = new float[hue.length];
+        float[] hsb = new float[3];
+        int width = image.getWidth();
+        int height = image.getHeight();
+        for(int ty = 0; ty < THUMBNAIL_HEIGHT; ty++) {
+            int y = (int) ((ty + 0.5) * height / THUMBNAIL_HEIGHT);
+            for(int tx = 0; tx < THUMBNAIL_WIDTH; tx++) {
+                int x = (int) ((tx + 0.5) * width / THUMBNAIL_WIDTH);
+                int rgb = image.getRGB(x, y);
+                Color.RGBtoHSB((rgb >> 16) & 0xff, (rgb >> 8) & 0xff, rgb & 0xff, hsb);
+                int i = ty * THUMBNAIL_WIDTH + tx;
+                hue[i] = hsb[0] * 360;
+                saturation[i] = hsb[1];
+                value[i] = hsb[2];
+            }
+        }
+
+        boolean[] furPixels = new boolean[hue.length];
+        double fur = 0, green = 0, sky = 0, dark = 0, bright = 0, meanSaturation = 0, meanValue = 0;
+        for(int i = 0; i < hue.length; i++) {
+            float h = hue[i], s = saturation[i], v = value[i];
+            if(h >= 15 && h <= 45 && s >= 0.3 && s <= 0.8 && v >= 0.3) {
+                fur++;
+                furPixels[i] = true;
+            } else if(h >= 70 && h <= 170 && s >= 0.25) {
+                green++;
+            } else if(h >= 190 && h <= 250 && s >= 0.2 && v >= 0.5) {
+                sky++;
+            }
+            if(v < 0.2) {
+                dark++;
+            } else if(v > 0.85 && s < 0.15) {
+                bright++;
+            }
+            meanSaturation += s;
+            meanValue += v;
+        }
+
+        //edge orientation histogram and mean edge strength on the brightness channel
+        double[] orientation = new double[4];
+        double totalMagnitude = 0;
+        double furMagnitude = 0;
+        for(int ty = 1; ty < THUMBNAIL_HEIGHT - 1; ty++) {
+            for(int tx = 1; tx < THUMBNAIL_WIDTH - 1; tx++) {
+                int i = ty * THUMBNAIL_WIDTH + tx;
+                double gx = value[i + 1] - value[i - 1];
+                double gy = value[i + THUMBNAIL_WIDTH] - value[i - THUMBNAIL_WIDTH];
+                double magnitude = Math.sqrt(gx * gx + gy * gy);
+                double angle = Math.atan2(gy, gx);
+                int bin = (int) Math.floor(((angle + Math.PI) / Math.PI) * 4) % 4;
+                orientation[bin] += magnitude;
+                totalMagnitude += magnitude;
+                if(furPixels[i]) {
+                    furMagnitude += magnitude;
+                }
+            }
+        }
+
+        double pixels = hue.length;
+        double[] features = new double[FEATURE_COUNT];
+        features[0] = fur / pixels;
+        features[1] = green / pixels;
+        features[2] = sky / pixels;
+        features[3] = dark / pixels;
+        features[4] = bright / pixels;
+        features[5] = meanSaturation / pixels;
+        features[6] = meanValue / pixels;
+        for(int b = 0; b < 4; b++) {
+            features[7 + b] = totalMagnitude == 0 ? 0.25 : orientation[b] / totalMagnitude;
+        }
+        features[11] = Math.min(1.0, totalMagnitude / ((THUMBNAIL_WIDTH - 2) * (THUMBNAIL_HEIGHT - 2)) * 4);
+        //fur is finely textured, where warm-toned walls, floors and furniture are mostly smooth
+        features[12] = fur == 0 ? 0 : Math.min(1.0, furMagnitude / fur * 4);
+        return features;
+    }
+
+    /**
+     * Logistic regression weights, loaded on first use. The JVM's class initialization guarantees the
+     * model is read exactly once and safely published to every thread.
+     */
+    private static final class Model {
+        private static final Model INSTANCE = load();
+
+        private final double[] weights;
+        private final double bias;
+
+        private Model(double[] weights, double bias) {
+            this.weights = weights;
+            this.bias = bias;
+        }
+
+        private static Model load() {
+            Properties props = new Properties();
+            try (InputStream is = LocalImageService.class.getResourceAsStream("local-cat-model.properties")) {
+                if(is == null) {
+                    throw new IllegalStateException("local-cat-model.properties is missing");
+                }
+                props.load(is);
+            } catch (IOException ioe) {
+                throw new UncheckedIOException("Unable to load local cat model", ioe);
+            }
+            double[] weights = Arrays.stream(props.getProperty("weights").split(","))
+                    .mapToDouble(w -> Double.parseDouble(w.trim()))
+                    .toArray();
+            if(weights.length != FEATURE_COUNT) {
+                throw new IllegalStateException("Expected " + FEATURE_COUNT + " weights but found " + weights.length);
+            }
+            return new Model(weights, Double.parseDouble(props.getProperty("bias").trim()));
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package com.udacity.catpoint.image.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.image.BufferedImage;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Image service decorator that keeps slow or failing classifiers from holding up a scan.
+ * <ul>
+ *     <li>Every call has a deadline. A request still running when it passes is cancelled and its
+ *     thread interrupted. A primary service that ignores interrupts keeps that thread busy until it
+ *     returns, so requests run on a bounded pool, and a call that finds the pool busy goes
+ *     straight to the fallback.</li>
+ *     <li>If a hedge delay is configured and the first request hasn't answered by then, an
+ *     identical second request is sent, and whichever answers first wins.</li>
+ *     <li>Calls that fail or miss their deadline are reported to a {@link CircuitBreaker}. While
+ *     it is open the primary service isn't called at all. A call that found the pool busy never
+ *     reached the primary service, so it is counted as saturated instead.</li>
+ * </ul>
+ * Whenever the primary service can't answer in time, the fallback service, for example a
+ * {@link LocalImageService} or a {@link CachingImageService}, answers instead. Counters and recent
+ * latencies of the primary service are exposed so they can be monitored.
+ */
+public class ResilientImageService implements ImageServiceInterface {
+
+    private static final int LATENCY_SAMPLES = 1024;
+    //upper bound on requests to the primary service in flight at once, including abandoned ones still running
+    private static final int MAX_REQUEST_THREADS = 16;
+
+    private Logger log = LoggerFactory.getLogger(ResilientImageService.class);
+
+    private final ImageServiceInterface primary;
+    private final ImageServiceInterface fallback;
+    private final long deadlineNanos;
+    private final long hedgeDelayNanos;
+    private final CircuitBreaker circuitBreaker;
+    private final Executor executor;
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder successes = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder hedges = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder saturated = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+    private final long[] latencies = new long[LATENCY_SAMPLES];
+    private long latencyCount;
+
+    /**
+     * Runs requests to the primary service on a pool of up to 16 daemon threads.
+     * @param primary The service that normally answers
+     * @param fallback Answers when the primary service fails, misses its deadline or is switched off by the breaker
+     * @param deadline Longest a caller waits for the primary service
+     * @param hedgeDelay How long to wait before sending a second request, or null to never hedge
+     * @param circuitBreaker Tracks failures of the primary service
+     */
+    public ResilientImageService(ImageServiceInterface primary, ImageServiceInterface fallback, Duration deadline,
+                                 Duration hedgeDelay, CircuitBreaker circuitBreaker) {
+        this(primary, fallback, deadline, hedgeDelay, circuitBreaker, new ThreadPoolExecutor(0, MAX_REQUEST_THREADS,
+                60, TimeUnit.SECONDS, new SynchronousQueue<>(), BatchExecutor.daemonThreads("catpoint-image-request")));
+    }
+
+    /**
+     * @param executor Runs requests to the primary service. It must be able to run two requests at
+     *                 once per concurrent caller when hedging is enabled. A call whose request it
+     *                 rejects is counted as saturated, not as a failure of the primary service.
+     */
+    public ResilientImageService(ImageServiceInterface primary, ImageServiceInterface fallback, Duration deadline,
+                                 Duration hedgeDelay, CircuitBreaker circuitBreaker, Executor executor) {
+        this.primary = Objects.requireNonNull(primary);
+        this.fallback = Objects.requireNonNull(fallback);
+        this.deadlineNanos = deadline.toNanos();
+        this.hedgeDelayNanos = hedgeDelay == null ? 0 : hedgeDelay.toNanos();
+        this.circuitBreaker = circuitBreaker;
+        this.executor = executor;
+    }
+
+    @Override
+    public boolean imageContainsCat(BufferedImage image, float confidenceThreshhold) {
+        calls.increment();
+        if(!circuitBreaker.allowRequest()) {
+            rejected.increment();
+            return fallback(image, confidenceThreshhold);
+        }
+
+        long start = System.nanoTime();
+        CompletableFuture<Boolean> answer = new CompletableFuture<>();
+        AtomicInteger pending = new AtomicInteger();
+        Future<?> first = send(image, confidenceThreshhold, answer, pending);
+        Future<?> hedge = null;
+        try {
+            boolean containsCat;
+            if(hedgeDelayNanos > 0 && hedgeDelayNanos < deadlineNanos) {
+                try {
+                    containsCat = answer.get(hedgeDelayNanos, TimeUnit.NANOSECONDS);
+                } catch (TimeoutException e) {
+                    hedges.increment();
+                    hedge = send(image, confidenceThreshhold, answer, pending);
+                    containsCat = answer.get(deadlineNanos - (System.nanoTime() - start), TimeUnit.NANOSECONDS);
+                }
+            } else {
+                containsCat = answer.get(deadlineNanos, TimeUnit.NANOSECONDS);
+            }
+            recordLatency(System.nanoTime() - start);
+            successes.increment();
+            circuitBreaker.recordSuccess();
+            return containsCat;
+        } catch (TimeoutException e) {
+            timeouts.increment();
+            log.warn("Image scan missed its {} ms deadline", TimeUnit.NANOSECONDS.toMillis(deadlineNanos));
+        } catch (ExecutionException e) {
+            if(e.getCause() instanceof RejectedExecutionException) {
+                //every request was turned away by the pool, so the primary service was never asked
+                saturated.increment();
+                circuitBreaker.recordNotSent();
+                return fallback(image, confidenceThreshhold);
+            }
+            failures.increment();
+            log.warn("Image scan failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failures.increment();
+        } finally {
+            //interrupts a request that lost the race or missed the deadline
+            first.cancel(true);
+            if(hedge != null) {
+                hedge.cancel(true);
+            }
+        }
+        circuitBreaker.recordFailure();
+        return fallback(image, confidenceThreshhold);
+    }
+
+    /**
+     * Sends one request to the primary service. The answer completes with the first successful
+     * response, or with the failure of the last outstanding request if they all fail.
+     * @return the request, which can be cancelled to interrupt it
+     */
+    private Future<?> send(BufferedImage image, float confidenceThreshhold, CompletableFuture<Boolean> answer, AtomicInteger pending) {
+        pending.incrementAndGet();
+        FutureTask<Boolean> request = new FutureTask<>(() -> primary.imageContainsCat(image, confidenceThreshhold)) {
+            @Override
+            protected void done() {
+                if(isCancelled()) {
+                    //only cancelled once the caller has stopped waiting for the answer
+                    return;
+                }
+                try {
+                    answer.complete(get());
+                } catch (ExecutionException e) {
+                    failed(e.getCause(), answer, pending);
+                } catch (InterruptedException e) {
+                    //can't happen, the task is done
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        try {
+            executor.execute(request);
+        } catch (RejectedExecutionException e) {
+            failed(e, answer, pending);
+        }
+        return request;
+    }
+
+    private static void failed(Throwable failure, CompletableFuture<Boolean> answer, AtomicInteger pending) {
+        if(pending.decrementAndGet() == 0) {
+            answer.completeExceptionally(failure);
+        }
+    }
+
+    private boolean fallback(BufferedImage image, float confidenceThreshhold) {
+        fallbacks.increment();
+        return fallback.imageContainsCat(image, confidenceThreshhold);
+    }
+
+    private synchronized void recordLatency(long nanos) {
+        latencies[(int) (latencyCount++ % LATENCY_SAMPLES)] = nanos;
+    }
+
+    /**
+     * @param percentile Between 0 and 100, for example 99 for the 99th percentile
+     * @return the latency of successful primary calls at that percentile, over the most recent calls, or zero if there were none
+     */
+    public synchronized Duration getLatencyPercentile(double percentile) {
+        int count = (int) Math.min(latencyCount, LATENCY_SAMPLES);
+        if(count == 0) {
+            return Duration.ZERO;
+        }
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100.0 * count) - 1;
+        return Duration.ofNanos(sorted[Math.max(0, Math.min(count - 1, index))]);
+    }
+
+    public CircuitBreaker.State getCircuitBreakerState() {
+        return circuitBreaker.getState();
+    }
+
+    public long getCallCount() {
+        return calls.sum();
+    }
+
+    public long getSuccessCount() {
+        return successes.sum();
+    }
+
+    public long getFailureCount() {
+        return failures.sum();
+    }
+
+    public long getTimeoutCount() {
+        return timeouts.sum();
+    }
+
+    public long getHedgeCount() {
+        return hedges.sum();
+    }
+
+    /**
+     * @return calls answered by the fallback service without trying the primary, because the circuit breaker was open
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * @return calls answered by the fallback service because the request pool was busy
+     */
+    public long getSaturatedCount() {
+        return saturated.sum();
+    }
+
+    public long getFallbackCount() {
+        return fallbacks.sum();
+    }
+}
@@ -6,4 +6,5 @@ module com.udacity.catpoint.Image {
     requires software.amazon.awssdk.services.rekognition;
     requires software.amazon.awssdk.regions;
     exports com.udacity.catpoint.image.service;
+    exports com.udacity.catpoint.image.camera;
 }
\ No newline at end of file
@@ -0,0 +1,65 @@
+package com.udacity.catpoint.image.camera;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DirectoryFrameSourceTest {
+
+    @TempDir
+    Path directory;
+
+    private static byte[] png(int width, int height) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "png", out);
+        return out.toByteArray();
+    }
+
+    private static CompletableFuture<BufferedImage> nextFrameAsync(DirectoryFrameSource source) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return source.nextFrame();
+            } catch (IOException | InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    @Test
+    void frameStillBeingWritten_ReadOnceComplete() throws Exception {
+        byte[] frame = png(32, 24);
+        try (DirectoryFrameSource source = new DirectoryFrameSource(directory, false)) {
+            CompletableFuture<BufferedImage> next = nextFrameAsync(source);
+            Path file = directory.resolve("frame.png");
+            Files.write(file, Arrays.copyOf(frame, frame.length / 2));
+            //long enough for the partial file to be seen and fail to decode
+            Thread.sleep(300);
+            assertFalse(next.isDone());
+
+            Files.write(file, frame);
+            assertEquals(32, next.get(5, TimeUnit.SECONDS).getWidth());
+        }
+    }
+
+    @Test
+    void unreadableFile_GivenUpWithoutBlockingLaterFrames() throws Exception {
+        try (DirectoryFrameSource source = new DirectoryFrameSource(directory, false)) {
+            CompletableFuture<BufferedImage> next = nextFrameAsync(source);
+            Files.write(directory.resolve("broken.png"), new byte[] {1, 2, 3});
+            Thread.sleep(100);
+            Files.write(directory.resolve("good.png"), png(16, 8));
+            assertEquals(16, next.get(5, TimeUnit.SECONDS).getWidth());
+        }
+    }
+}
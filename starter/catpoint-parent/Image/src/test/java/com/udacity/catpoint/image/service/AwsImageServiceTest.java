@@ -0,0 +1,148 @@
+package com.udacity.catpoint.image.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.rekognition.RekognitionClient;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs AwsImageService against a stub Rekognition endpoint on localhost, so no AWS account is needed.
+ */
+public class AwsImageServiceTest {
+
+    private final BufferedImage image = new BufferedImage(640, 480, BufferedImage.TYPE_INT_RGB);
+
+    private StubRekognition stub;
+    private RekognitionClient client;
+
+    @BeforeEach
+    void init() throws IOException {
+        stub = new StubRekognition();
+        client = AwsImageService.buildClient(StaticCredentialsProvider.create(AwsBasicCredentials.create("test", "test")),
+                Region.US_EAST_2, stub.endpoint());
+    }
+
+    @AfterEach
+    void close() throws IOException {
+        client.close();
+        stub.close();
+    }
+
+    @Test
+    void stubEndpoint_LabelsDecideResult() {
+        AwsImageService imageService = new AwsImageService(client, new ImagePreprocessor(320, 240, 0.8f));
+        stub.labels = "[{\"Name\":\"Cat\",\"Confidence\":97.5}]";
+        assertTrue(imageService.imageContainsCat(image, 50.0f));
+
+        stub.labels = "[{\"Name\":\"Dog\",\"Confidence\":97.5}]";
+        assertFalse(imageService.imageContainsCat(image, 50.0f));
+        assertEquals(2, stub.requests.get());
+    }
+
+    @Test
+    void slowEndpoint_ResilientServiceFallsBackAndOpensBreaker() {
+        stub.delayMillis = 2000;
+        ResilientImageService imageService = new ResilientImageService(
+                new AwsImageService(client, new ImagePreprocessor(320, 240, 0.8f)),
+                (image, confidenceThreshhold) -> true,
+                Duration.ofMillis(200), null, new CircuitBreaker(2, Duration.ofMinutes(1)));
+
+        for(int i = 0; i < 3; i++) {
+            assertTrue(imageService.imageContainsCat(image, 50.0f));
+        }
+        assertEquals(2, imageService.getTimeoutCount());
+        assertEquals(1, imageService.getRejectedCount());
+        assertEquals(CircuitBreaker.State.OPEN, imageService.getCircuitBreakerState());
+    }
+
+    /**
+     * Minimal HTTP server answering every DetectLabels request with the configured labels.
+     */
+    private static class StubRekognition implements AutoCloseable {
+        private final ServerSocket serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        private final AtomicInteger requests = new AtomicInteger();
+        private volatile String labels = "[]";
+        private volatile long delayMillis;
+
+        private StubRekognition() throws IOException {
+            Thread acceptor = new Thread(() -> {
+                while(!serverSocket.isClosed()) {
+                    try {
+                        Socket socket = serverSocket.accept();
+                        Thread handler = new Thread(() -> serve(socket));
+                        handler.setDaemon(true);
+                        handler.start();
+                    } catch (IOException e) {
+                        //closed
+                    }
+                }
+            });
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+
+        private URI endpoint() {
+            return URI.create("http://localhost:" + serverSocket.getLocalPort());
+        }
+
+        private void serve(Socket socket) {
+            try (socket) {
+                BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.ISO_8859_1));
+                OutputStream out = socket.getOutputStream();
+                String requestLine;
+                while((requestLine = in.readLine()) != null && !requestLine.isEmpty()) {
+                    int contentLength = 0;
+                    String header;
+                    while((header = in.readLine()) != null && !header.isEmpty()) {
+                        if(header.toLowerCase().startsWith("content-length:")) {
+                            contentLength = Integer.parseInt(header.substring(header.indexOf(':') + 1).trim());
+                        }
+                    }
+                    //base64 image payloads are ascii, so one char per byte
+                    for(long remaining = contentLength; remaining > 0; ) {
+                        long skipped = in.skip(remaining);
+                        if(skipped == 0) {
+                            return;
+                        }
+                        remaining -= skipped;
+                    }
+                    requests.incrementAndGet();
+                    if(delayMillis > 0) {
+                        Thread.sleep(delayMillis);
+                    }
+                    byte[] body = ("{\"Labels\":" + labels + "}").getBytes(StandardCharsets.UTF_8);
+                    out.write(("HTTP/1.1 200 OK\r\n"
+                            + "Content-Type: application/x-amz-json-1.1\r\n"
+                            + "Content-Length: " + body.length + "\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1));
+                    out.write(body);
+                    out.flush();
+                }
+            } catch (IOException | InterruptedException e) {
+                //client went away
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            serverSocket.close();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.udacity.catpoint.image.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Uses generated frames whose fingerprints are known exactly, and a hand-driven clock.
+ */
+public class CachingImageServiceTest {
+
+    private static final Duration TTL = Duration.ofSeconds(10);
+
+    private long now;
+    private final AtomicInteger delegateCalls = new AtomicInteger();
+    //answers alternate, so a test can tell which call an answer came from
+    private final ImageServiceInterface delegate = (image, confidenceThreshhold) -> delegateCalls.incrementAndGet() % 2 == 1;
+
+    private CachingImageService cache(int maxEntries, int maxDistance) {
+        return new CachingImageService(delegate, maxEntries, TTL, maxDistance, () -> now);
+    }
+
+    private void advance(long seconds) {
+        now += TimeUnit.SECONDS.toNanos(seconds);
+    }
+
+    /**
+     * @return a frame whose fingerprint hash is the provided bits: each bit is set where a grid cell
+     * is brighter than the cell to its right
+     */
+    private static BufferedImage frame(long bits) {
+        BufferedImage image = new BufferedImage(90, 80, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        for(int gy = 0; gy < 8; gy++) {
+            int brightness = 128;
+            for(int gx = 0; gx < 9; gx++) {
+                g.setColor(new Color(brightness, brightness, brightness));
+                g.fillRect(gx * 10, gy * 10, 10, 10);
+                if(gx < 8) {
+                    boolean brighter = ((bits >>> (63 - (gy * 8 + gx))) & 1) == 1;
+                    brightness += brighter ? -10 : 10;
+                }
+            }
+        }
+        g.dispose();
+        return image;
+    }
+
+    @Test
+    void generatedFrames_HaveTheRequestedFingerprint() {
+        assertEquals(0b1011L, ImageFingerprint.of(frame(0b1011L)).getHash());
+    }
+
+    @Test
+    void exactMatch_Hit() {
+        CachingImageService imageService = cache(16, 0);
+        assertTrue(imageService.imageContainsCat(frame(0b1), 50.0f));
+        assertTrue(imageService.imageContainsCat(frame(0b1), 50.0f));
+        assertEquals(1, delegateCalls.get());
+        assertEquals(1, imageService.getHitCount());
+        assertEquals(1, imageService.getMissCount());
+    }
+
+    @Test
+    void nearMatch_HitWithinMaxDistanceOnly() {
+        CachingImageService imageService = cache(16, 2);
+        imageService.imageContainsCat(frame(0), 50.0f);
+        //two bits away
+        imageService.imageContainsCat(frame(0b11), 50.0f);
+        assertEquals(1, delegateCalls.get());
+        //three bits away
+        imageService.imageContainsCat(frame(0b111000L << 8), 50.0f);
+        assertEquals(2, delegateCalls.get());
+        assertEquals(1, imageService.getHitCount());
+    }
+
+    @Test
+    void expiredEntry_Missed() {
+        CachingImageService imageService = cache(16, 0);
+        imageService.imageContainsCat(frame(0b1), 50.0f);
+        advance(9);
+        imageService.imageContainsCat(frame(0b1), 50.0f);
+        assertEquals(1, delegateCalls.get());
+        advance(1);
+        imageService.imageContainsCat(frame(0b1), 50.0f);
+        assertEquals(2, delegateCalls.get());
+    }
+
+    @Test
+    void expiredNearestEntry_SkippedForFreshOneAndEvicted() {
+        CachingImageService imageService = cache(16, 3);
+        //stale is one bit from the query, fresh is three bits from it and four from stale
+        assertTrue(imageService.imageContainsCat(frame(0b1), 50.0f));
+        advance(6);
+        assertFalse(imageService.imageContainsCat(frame(0b1110), 50.0f));
+        advance(6);
+
+        assertFalse(imageService.imageContainsCat(frame(0), 50.0f));
+        assertEquals(2, delegateCalls.get());
+        assertEquals(1, imageService.size());
+    }
+
+    @Test
+    void fullCache_EvictsLeastRecentlyUsed() {
+        CachingImageService imageService = cache(2, 0);
+        imageService.imageContainsCat(frame(1), 50.0f);
+        imageService.imageContainsCat(frame(2), 50.0f);
+        //touch the first frame, so the second is the least recently used
+        imageService.imageContainsCat(frame(1), 50.0f);
+        imageService.imageContainsCat(frame(4), 50.0f);
+        assertEquals(3, delegateCalls.get());
+
+        imageService.imageContainsCat(frame(1), 50.0f);
+        assertEquals(3, delegateCalls.get());
+        imageService.imageContainsCat(frame(2), 50.0f);
+        assertEquals(4, delegateCalls.get());
+    }
+
+    @Test
+    void differentThresholds_CachedSeparately() {
+        CachingImageService imageService = cache(16, 2);
+        assertTrue(imageService.imageContainsCat(frame(0), 50.0f));
+        assertFalse(imageService.imageContainsCat(frame(0), 70.0f));
+        //a near match must not cross thresholds either
+        assertFalse(imageService.imageContainsCat(frame(0b1), 70.0f));
+        assertTrue(imageService.imageContainsCat(frame(0b1), 50.0f));
+        assertEquals(2, delegateCalls.get());
+    }
+}
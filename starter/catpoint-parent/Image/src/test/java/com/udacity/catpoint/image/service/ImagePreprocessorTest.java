@@ -0,0 +1,46 @@
+package com.udacity.catpoint.image.service;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ImagePreprocessorTest {
+
+    @Test
+    void largeImage_ScaledToFitKeepingAspectRatio() {
+        ImagePreprocessor preprocessor = new ImagePreprocessor(640, 480, 0.8f);
+        BufferedImage prepared = preprocessor.prepare(new BufferedImage(4000, 2000, BufferedImage.TYPE_3BYTE_BGR));
+        assertEquals(640, prepared.getWidth());
+        assertEquals(320, prepared.getHeight());
+        assertEquals(BufferedImage.TYPE_INT_RGB, prepared.getType());
+    }
+
+    @Test
+    void smallRgbImage_ReturnedUnchanged() {
+        ImagePreprocessor preprocessor = new ImagePreprocessor(640, 480, 0.8f);
+        BufferedImage image = new BufferedImage(320, 240, BufferedImage.TYPE_INT_RGB);
+        assertSame(image, preprocessor.prepare(image));
+
+        BufferedImage argb = new BufferedImage(320, 240, BufferedImage.TYPE_INT_ARGB);
+        BufferedImage prepared = preprocessor.prepare(argb);
+        assertEquals(BufferedImage.TYPE_INT_RGB, prepared.getType());
+        assertEquals(320, prepared.getWidth());
+    }
+
+    @Test
+    void lowerJpegQuality_ProducesSmallerDecodableImage() throws IOException {
+        BufferedImage cat = ImageIO.read(new File("../sample-cat.jpg"));
+        byte[] best = new ImagePreprocessor(640, 480, 0.95f).toJpeg(cat);
+        byte[] small = new ImagePreprocessor(640, 480, 0.5f).toJpeg(cat);
+        assertTrue(small.length < best.length);
+
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(small));
+        assertTrue(decoded.getWidth() <= 640 && decoded.getHeight() <= 480);
+    }
+}
@@ -0,0 +1,39 @@
+package com.udacity.catpoint.image.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ImageServiceInterfaceTest {
+
+    //reports a cat for images wider than they are tall
+    private final ImageServiceInterface imageService = (image, confidenceThreshhold) -> image.getWidth() > image.getHeight();
+
+    @Test
+    void imagesContainCat_ReturnsResultsInOrder() {
+        List<BufferedImage> images = new ArrayList<>();
+        List<Boolean> expected = new ArrayList<>();
+        for(int i = 0; i < 100; i++) {
+            boolean cat = i % 3 == 0;
+            images.add(cat ? new BufferedImage(20, 10, BufferedImage.TYPE_INT_RGB) : new BufferedImage(10, 20, BufferedImage.TYPE_INT_RGB));
+            expected.add(cat);
+        }
+        assertIterableEquals(expected, imageService.imagesContainCat(images, 50.0f));
+    }
+
+    @Test
+    void imagesContainCat_FailingImage_RethrowsFailure() {
+        ImageServiceInterface failing = (image, confidenceThreshhold) -> {
+            if(image.getWidth() == 1) {
+                throw new IllegalStateException("bad frame");
+            }
+            return false;
+        };
+        List<BufferedImage> images = List.of(new BufferedImage(10, 10, BufferedImage.TYPE_INT_RGB), new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB));
+        assertThrows(IllegalStateException.class, () -> failing.imagesContainCat(images, 50.0f));
+    }
+}
@@ -0,0 +1,61 @@
+package com.udacity.catpoint.image.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Fits on one set of generated images and scores on another drawn with a different seed: warm,
+ * finely textured images stand in for cats, smooth green and blue ones for everything else.
+ */
+public class LocalCatModelTrainerTest {
+
+    private static BufferedImage generate(boolean cat, Random random) {
+        BufferedImage image = new BufferedImage(64, 48, BufferedImage.TYPE_INT_RGB);
+        float baseHue = cat ? 0.06f + random.nextFloat() * 0.04f : 0.3f + random.nextFloat() * 0.3f;
+        for(int y = 0; y < image.getHeight(); y++) {
+            for(int x = 0; x < image.getWidth(); x++) {
+                float brightness = cat ? 0.4f + random.nextFloat() * 0.5f : 0.5f + 0.3f * y / image.getHeight();
+                image.setRGB(x, y, Color.HSBtoRGB(baseHue, 0.55f, brightness));
+            }
+        }
+        return image;
+    }
+
+    private static void sample(long seed, int count, List<double[]> features, List<Boolean> labels) {
+        Random random = new Random(seed);
+        for(int i = 0; i < count; i++) {
+            boolean cat = i % 2 == 0;
+            features.add(LocalImageService.features(generate(cat, random)));
+            labels.add(cat);
+        }
+    }
+
+    @Test
+    void fittedModel_ClassifiesUnseenImages() {
+        List<double[]> trainFeatures = new ArrayList<>();
+        List<Boolean> trainLabels = new ArrayList<>();
+        sample(1, 40, trainFeatures, trainLabels);
+        List<double[]> testFeatures = new ArrayList<>();
+        List<Boolean> testLabels = new ArrayList<>();
+        sample(2, 20, testFeatures, testLabels);
+
+        double[] model = LocalCatModelTrainer.fit(trainFeatures, trainLabels);
+        assertEquals(LocalImageService.FEATURE_COUNT + 1, model.length);
+        assertEquals(1.0, LocalCatModelTrainer.accuracy(model, testFeatures, testLabels));
+    }
+
+    @Test
+    void fitIsDeterministic() {
+        List<double[]> features = new ArrayList<>();
+        List<Boolean> labels = new ArrayList<>();
+        sample(3, 10, features, labels);
+        assertArrayEquals(LocalCatModelTrainer.fit(features, labels), LocalCatModelTrainer.fit(features, labels));
+    }
+}
@@ -0,0 +1,47 @@
+package com.udacity.catpoint.image.service;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The bundled model was fitted to the sample images, so these tests only cover behavior that
+ * doesn't depend on how well it classifies. LocalCatModelTrainerTest covers the fitting itself.
+ */
+public class LocalImageServiceTest {
+
+    private final LocalImageService imageService = new LocalImageService();
+
+    private static BufferedImage sample(String name) throws IOException {
+        return ImageIO.read(new File("../" + name));
+    }
+
+    @Test
+    void classificationIsDeterministic() throws IOException {
+        BufferedImage cat = sample("sample-cat.jpg");
+        assertEquals(imageService.catConfidence(cat), new LocalImageService().catConfidence(cat));
+    }
+
+    @Test
+    void confidence_IsAPercentage() throws IOException {
+        for(String name : new String[] {"sample-cat.jpg", "sample-not-cat.jpg", "sample-not-a-cat-fail.jpg"}) {
+            float confidence = imageService.catConfidence(sample(name));
+            assertTrue(confidence >= 0 && confidence <= 100, name + ": " + confidence);
+        }
+    }
+
+    @Test
+    void features_StayInUnitRange() {
+        BufferedImage blank = new BufferedImage(10, 10, BufferedImage.TYPE_INT_RGB);
+        double[] features = LocalImageService.features(blank);
+        assertEquals(LocalImageService.FEATURE_COUNT, features.length);
+        for(double feature : features) {
+            assertTrue(feature >= 0 && feature <= 1);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.udacity.catpoint.image.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ResilientImageServiceTest {
+
+    private final BufferedImage image = new BufferedImage(10, 10, BufferedImage.TYPE_INT_RGB);
+    private final ImageServiceInterface alwaysCat = (image, confidenceThreshhold) -> true;
+
+    private static boolean sleepThenAnswer(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    @Test
+    void slowPrimary_FallsBackAndOpensBreaker() {
+        AtomicInteger primaryCalls = new AtomicInteger();
+        ImageServiceInterface slow = (image, confidenceThreshhold) -> {
+            primaryCalls.incrementAndGet();
+            return sleepThenAnswer(2000);
+        };
+        ResilientImageService imageService = new ResilientImageService(slow, alwaysCat, Duration.ofMillis(50), null,
+                new CircuitBreaker(2, Duration.ofMinutes(1)));
+
+        for(int i = 0; i < 3; i++) {
+            assertTrue(imageService.imageContainsCat(image, 50.0f));
+        }
+        assertEquals(CircuitBreaker.State.OPEN, imageService.getCircuitBreakerState());
+        assertEquals(2, imageService.getTimeoutCount());
+        assertEquals(1, imageService.getRejectedCount());
+        assertEquals(3, imageService.getFallbackCount());
+        assertEquals(2, primaryCalls.get());
+    }
+
+    @Test
+    void slowFirstRequest_HedgedRequestAnswers() {
+        AtomicInteger primaryCalls = new AtomicInteger();
+        ImageServiceInterface firstSlow = (image, confidenceThreshhold) -> primaryCalls.incrementAndGet() == 1 ? sleepThenAnswer(2000) : false;
+        ResilientImageService imageService = new ResilientImageService(firstSlow, alwaysCat, Duration.ofSeconds(1), Duration.ofMillis(20),
+                new CircuitBreaker(2, Duration.ofMinutes(1)));
+
+        assertFalse(imageService.imageContainsCat(image, 50.0f));
+        assertEquals(1, imageService.getHedgeCount());
+        assertEquals(1, imageService.getSuccessCount());
+        assertEquals(0, imageService.getFallbackCount());
+        assertTrue(imageService.getLatencyPercentile(99).toMillis() < 1000);
+    }
+
+    @Test
+    void openBreaker_ClosesAfterSuccessfulTrial() throws InterruptedException {
+        AtomicInteger primaryCalls = new AtomicInteger();
+        ImageServiceInterface recovering = (image, confidenceThreshhold) -> {
+            if(primaryCalls.incrementAndGet() == 1) {
+                throw new IllegalStateException("service unavailable");
+            }
+            return false;
+        };
+        ResilientImageService imageService = new ResilientImageService(recovering, alwaysCat, Duration.ofSeconds(1), null,
+                new CircuitBreaker(1, Duration.ofMillis(50)));
+
+        assertTrue(imageService.imageContainsCat(image, 50.0f));
+        assertEquals(CircuitBreaker.State.OPEN, imageService.getCircuitBreakerState());
+        Thread.sleep(100);
+        assertFalse(imageService.imageContainsCat(image, 50.0f));
+        assertEquals(CircuitBreaker.State.CLOSED, imageService.getCircuitBreakerState());
+        assertEquals(1, imageService.getFailureCount());
+    }
+
+    @Test
+    void missedDeadline_InterruptsPrimary() throws InterruptedException {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        ImageServiceInterface slow = (image, confidenceThreshhold) -> {
+            try {
+                Thread.sleep(5000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return false;
+        };
+        ResilientImageService imageService = new ResilientImageService(slow, alwaysCat, Duration.ofMillis(50), null,
+                new CircuitBreaker(2, Duration.ofMinutes(1)));
+
+        assertTrue(imageService.imageContainsCat(image, 50.0f));
+        assertTrue(interrupted.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void busyExecutor_FallsBackWithoutWaiting() {
+        ResilientImageService imageService = new ResilientImageService((image, confidenceThreshhold) -> false, alwaysCat,
+                Duration.ofSeconds(5), null, new CircuitBreaker(2, Duration.ofMinutes(1)), r -> {
+                    throw new RejectedExecutionException("busy");
+                });
+
+        long start = System.nanoTime();
+        assertTrue(imageService.imageContainsCat(image, 50.0f));
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+        assertEquals(0, imageService.getFailureCount());
+        assertEquals(1, imageService.getSaturatedCount());
+        assertEquals(1, imageService.getFallbackCount());
+
+        //a busy pool says nothing about the primary service, so the breaker stays closed
+        assertTrue(imageService.imageContainsCat(image, 50.0f));
+        assertEquals(2, imageService.getSaturatedCount());
+        assertEquals(CircuitBreaker.State.CLOSED, imageService.getCircuitBreakerState());
+    }
+
+    @Test
+    void trialRequestTurnedAwayByBusyPool_NextCallMayTryAgain() {
+        CircuitBreaker breaker = new CircuitBreaker(1, Duration.ZERO);
+        breaker.recordFailure();
+        ResilientImageService imageService = new ResilientImageService((image, confidenceThreshhold) -> false, alwaysCat,
+                Duration.ofSeconds(5), null, breaker, r -> {
+                    throw new RejectedExecutionException("busy");
+                });
+
+        assertTrue(imageService.imageContainsCat(image, 50.0f));
+        //not stuck half open waiting for a trial that was never sent
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertTrue(imageService.imageContainsCat(image, 50.0f));
+        assertEquals(2, imageService.getSaturatedCount());
+        assertEquals(0, imageService.getRejectedCount());
+        assertEquals(1, breaker.getTimesOpened());
+    }
+}
@@ -1,11 +1,18 @@
 package com.udacity.catpoint.security.application;
 
+import java.util.Arrays;
+
 /**
- * This is the main class that launches the application.
+ * This is the main class that launches the application. Pass --headless to run without the GUI,
+ * see {@link CatpointHeadless} for the other options.
  */
 public class CatpointApp {
-    public static void main(String[] args) {
-        CatpointGui gui = new CatpointGui();
-        gui.setVisible(true);
+    public static void main(String[] args) throws InterruptedException {
+        if(Arrays.asList(args).contains("--headless")) {
+            //CatpointGui is never referenced on this path, so Swing is never loaded
+            CatpointHeadless.main(args);
+            return;
+        }
+        new CatpointGui().setVisible(true);
     }
 }
@@ -1,12 +1,16 @@
 package com.udacity.catpoint.security.application;
 
 import com.udacity.catpoint.image.service.FakeImageService;
+import com.udacity.catpoint.image.service.ImageServiceInterface;
 import com.udacity.catpoint.security.data.PretendDatabaseSecurityRepositoryImpl;
 import com.udacity.catpoint.security.data.SecurityRepository;
+import com.udacity.catpoint.security.metrics.MetricsRegistry;
+import com.udacity.catpoint.security.service.InstrumentedImageService;
 import com.udacity.catpoint.security.service.SecurityService;
 import net.miginfocom.swing.MigLayout;
 
 import javax.swing.*;
+import java.time.Duration;
 
 /**
  * This is the primary JFrame for the application that contains all the top-level JPanels.
@@ -15,17 +19,39 @@ import javax.swing.*;
  * all our dependencies and providing them to other classes as necessary.
  */
 public class CatpointGui extends JFrame {
-    private transient SecurityRepository securityRepository = new PretendDatabaseSecurityRepositoryImpl();
-    private transient FakeImageService imageService = new FakeImageService();
+    //write sensor changes in the background so sensor bursts don't block the event dispatch thread
+    private static final long PREFS_FLUSH_INTERVAL_MILLIS = 500;
+    private static final int PREFS_FLUSH_THRESHOLD = 100;
+    //cap on how often status updates repaint the panels
+    private static final int UI_MAX_FRAMES_PER_SECOND = 30;
+    private static final Duration IMAGE_SCAN_TIMEOUT = Duration.ofSeconds(15);
+    //metrics are published as MBeans under this JMX domain
+    private static final String JMX_DOMAIN = "com.udacity.catpoint";
+
+    private transient SecurityRepository securityRepository =
+            new PretendDatabaseSecurityRepositoryImpl(PREFS_FLUSH_INTERVAL_MILLIS, PREFS_FLUSH_THRESHOLD);
+    private transient ImageServiceInterface imageService =
+            new InstrumentedImageService(new FakeImageService(), MetricsRegistry.getDefault(), "imageService");
     private transient SecurityService securityService = new SecurityService(securityRepository, imageService);
     private DisplayPanel displayPanel = new DisplayPanel(securityService);
     private final ControlPanel controlPanel;
     private final SensorPanel sensorPanel;
     private ImagePanel imagePanel = new ImagePanel(securityService);
+    private transient CoalescingStatusDispatcher statusDispatcher = new CoalescingStatusDispatcher(UI_MAX_FRAMES_PER_SECOND);
 
     public CatpointGui() {
+        MetricsRegistry.getDefault().registerMBeans(JMX_DOMAIN);
         sensorPanel = new SensorPanel(securityService);
         controlPanel = new ControlPanel(securityService, sensorPanel);
+
+        //scan results are applied on the EDT, like every other state change made from the GUI
+        securityService.configureAsyncScans(null, SwingUtilities::invokeLater, IMAGE_SCAN_TIMEOUT);
+
+        //panels hear about status changes through the dispatcher, which batches them onto the EDT
+        securityService.addStatusListener(statusDispatcher);
+        statusDispatcher.addStatusListener(displayPanel);
+        statusDispatcher.addStatusListener(imagePanel);
+        statusDispatcher.addStatusListener(sensorPanel);
         setLocation(100, 100);
         setSize(600, 850);
         setTitle("Very Secure App");
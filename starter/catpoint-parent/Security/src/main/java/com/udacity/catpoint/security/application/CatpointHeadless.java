@@ -0,0 +1,171 @@
+package com.udacity.catpoint.security.application;
+
+import com.udacity.catpoint.image.camera.DirectoryFrameSource;
+import com.udacity.catpoint.image.camera.FrameChangeDetector;
+import com.udacity.catpoint.image.service.AwsImageService;
+import com.udacity.catpoint.image.service.FakeImageService;
+import com.udacity.catpoint.image.service.ImageServiceInterface;
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.JournalSecurityRepositoryImpl;
+import com.udacity.catpoint.security.data.PretendDatabaseSecurityRepositoryImpl;
+import com.udacity.catpoint.security.data.SecurityRepository;
+import com.udacity.catpoint.security.metrics.MetricsRegistry;
+import com.udacity.catpoint.security.service.CameraFramePipeline;
+import com.udacity.catpoint.security.service.InstrumentedImageService;
+import com.udacity.catpoint.security.service.SecurityEventLoop;
+import com.udacity.catpoint.security.service.SecurityService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Runs the security service without a user interface, for servers and containers. Swing and the
+ * AWT toolkit are never loaded, and when the AWS image service is used its client is only created
+ * when the first frame is scanned.
+ *
+ * Options:
+ *   --data-dir [dir]    keep state in a journal in this directory rather than in user preferences
+ *   --camera-dir [dir]  classify image files as they appear in this directory
+ *   --aws               classify with AWS Rekognition
+ *
+ * Without --aws, images are classified by {@link FakeImageService}.
+ *
+ * Status changes are logged, metrics are published over JMX, and the process runs until it is stopped.
+ */
+public class CatpointHeadless {
+
+    private static final Logger log = LoggerFactory.getLogger(CatpointHeadless.class);
+
+    private static final long PREFS_FLUSH_INTERVAL_MILLIS = 500;
+    private static final int PREFS_FLUSH_THRESHOLD = 100;
+    private static final String JMX_DOMAIN = "com.udacity.catpoint";
+    //frames waiting for the classifier; older ones are dropped once it falls behind
+    private static final int CAMERA_QUEUE_CAPACITY = 4;
+    private static final int CAMERA_PIXEL_THRESHOLD = 24;
+    private static final double CAMERA_CHANGED_FRACTION = 0.02;
+
+    private final StartupTimer timer = new StartupTimer();
+    private final CountDownLatch stopped = new CountDownLatch(1);
+
+    private Path dataDir;
+    private Path cameraDir;
+    private boolean aws;
+
+    private SecurityRepository securityRepository;
+    private SecurityEventLoop eventLoop;
+    private CameraFramePipeline cameraPipeline;
+
+    public static void main(String[] args) throws InterruptedException {
+        //set before anything touches java.awt, so image decoding never tries to reach a display
+        System.setProperty("java.awt.headless", "true");
+        CatpointHeadless headless = new CatpointHeadless();
+        headless.parseArgs(args);
+        headless.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(headless::stop, "catpoint-shutdown"));
+        headless.stopped.await();
+    }
+
+    private void parseArgs(String[] args) {
+        for(int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--headless" -> { }
+                case "--aws" -> aws = true;
+                case "--data-dir" -> dataDir = Paths.get(argValue(args, ++i, "--data-dir"));
+                case "--camera-dir" -> cameraDir = Paths.get(argValue(args, ++i, "--camera-dir"));
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+    }
+
+    private static String argValue(String[] args, int i, String option) {
+        if(i >= args.length) {
+            throw new IllegalArgumentException(option + " needs a directory");
+        }
+        return args[i];
+    }
+
+    private ImageServiceInterface createImageService() {
+        return aws ? new AwsImageService() : new FakeImageService();
+    }
+
+    private void start() {
+        MetricsRegistry metrics = MetricsRegistry.getDefault();
+        timer.time("metrics", () -> metrics.registerMBeans(JMX_DOMAIN));
+        securityRepository = timer.time("repository", this::createRepository);
+        ImageServiceInterface imageService = timer.time("imageService", () ->
+                new InstrumentedImageService(createImageService(), metrics, "imageService"));
+        SecurityService securityService = timer.time("securityService", () -> {
+            SecurityService service = new SecurityService(securityRepository, imageService);
+            service.addStatusListener(new LoggingStatusListener());
+            return service;
+        });
+        eventLoop = timer.time("eventLoop", () -> new SecurityEventLoop(securityService));
+        if(cameraDir != null) {
+            cameraPipeline = timer.time("camera", this::createCameraPipeline);
+            cameraPipeline.start();
+        }
+        log.info("Started headless with {} sensors, alarm {}, arming {}", securityService.getSensors().size(),
+                securityService.getAlarmStatus(), securityService.getArmingStatus());
+        log.info("Startup phases: {}", timer.summary());
+    }
+
+    private SecurityRepository createRepository() {
+        if(dataDir != null) {
+            return new JournalSecurityRepositoryImpl(dataDir);
+        }
+        return new PretendDatabaseSecurityRepositoryImpl(PREFS_FLUSH_INTERVAL_MILLIS, PREFS_FLUSH_THRESHOLD);
+    }
+
+    private CameraFramePipeline createCameraPipeline() {
+        try {
+            return new CameraFramePipeline(new DirectoryFrameSource(cameraDir, false),
+                    new FrameChangeDetector(CAMERA_PIXEL_THRESHOLD, CAMERA_CHANGED_FRACTION),
+                    CAMERA_QUEUE_CAPACITY, eventLoop::submitImage);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to watch camera directory " + cameraDir, e);
+        }
+    }
+
+    private void stop() {
+        try {
+            if(cameraPipeline != null) {
+                cameraPipeline.close();
+            }
+            eventLoop.close();
+            if(securityRepository instanceof JournalSecurityRepositoryImpl) {
+                ((JournalSecurityRepositoryImpl) securityRepository).close();
+            } else if(securityRepository instanceof PretendDatabaseSecurityRepositoryImpl) {
+                ((PretendDatabaseSecurityRepositoryImpl) securityRepository).close();
+            }
+        } catch (Exception e) {
+            log.error("Error while shutting down", e);
+        } finally {
+            stopped.countDown();
+        }
+    }
+
+    /**
+     * Writes status changes to the log in place of the display panels.
+     */
+    private static class LoggingStatusListener implements StatusListener {
+        @Override
+        public void notify(AlarmStatus status) {
+            log.info("Alarm status {}", status);
+        }
+
+        @Override
+        public void catDetected(boolean catDetected) {
+            log.info("Cat detected: {}", catDetected);
+        }
+
+        @Override
+        public void sensorStatusChanged() {
+            log.debug("Sensor status changed");
+        }
+    }
+}
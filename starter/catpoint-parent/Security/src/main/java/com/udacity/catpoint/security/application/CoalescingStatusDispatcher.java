@@ -0,0 +1,117 @@
+package com.udacity.catpoint.security.application;
+
+import com.udacity.catpoint.security.data.AlarmStatus;
+
+import javax.swing.*;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * StatusListener that sits between the SecurityService and the Swing panels. Notifications can
+ * arrive on any thread and at any rate; the dispatcher only remembers the latest alarm status,
+ * the latest cat detection result and whether sensors changed, and delivers that state to its
+ * listeners on the event dispatch thread at most once per frame. Listeners always end up
+ * showing the latest state, but a burst of updates costs a single repaint.
+ */
+public class CoalescingStatusDispatcher implements StatusListener {
+
+    private final Set<StatusListener> statusListeners = new CopyOnWriteArraySet<>();
+    private final long frameNanos;
+    private final ScheduledExecutorService scheduler;
+
+    //state waiting to be delivered. Cleared by the EDT when it delivers it
+    private final AtomicReference<AlarmStatus> pendingAlarmStatus = new AtomicReference<>();
+    private final AtomicReference<Boolean> pendingCatDetected = new AtomicReference<>();
+    private final AtomicBoolean pendingSensorChange = new AtomicBoolean();
+    private final AtomicBoolean deliveryScheduled = new AtomicBoolean();
+    private volatile long lastDeliveryNanos;
+
+    /**
+     * @param maxFramesPerSecond Upper bound on how often listeners are updated
+     */
+    public CoalescingStatusDispatcher(int maxFramesPerSecond) {
+        if(maxFramesPerSecond <= 0) {
+            throw new IllegalArgumentException("Frame rate must be positive: " + maxFramesPerSecond);
+        }
+        this.frameNanos = TimeUnit.SECONDS.toNanos(1) / maxFramesPerSecond;
+        this.lastDeliveryNanos = System.nanoTime() - frameNanos;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "catpoint-ui-dispatcher");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public void addStatusListener(StatusListener statusListener) {
+        statusListeners.add(statusListener);
+    }
+
+    public void removeStatusListener(StatusListener statusListener) {
+        statusListeners.remove(statusListener);
+    }
+
+    @Override
+    public void notify(AlarmStatus status) {
+        pendingAlarmStatus.set(status);
+        scheduleDelivery();
+    }
+
+    @Override
+    public void catDetected(boolean catDetected) {
+        pendingCatDetected.set(catDetected);
+        scheduleDelivery();
+    }
+
+    @Override
+    public void sensorStatusChanged() {
+        pendingSensorChange.set(true);
+        scheduleDelivery();
+    }
+
+    /**
+     * Makes sure a delivery is on its way, waiting out the remainder of the current frame if the
+     * last delivery was too recent. Only one delivery is ever scheduled at a time.
+     */
+    private void scheduleDelivery() {
+        if(!deliveryScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        long wait = lastDeliveryNanos + frameNanos - System.nanoTime();
+        if(wait <= 0) {
+            SwingUtilities.invokeLater(this::deliver);
+        } else {
+            scheduler.schedule(() -> SwingUtilities.invokeLater(this::deliver), wait, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Hands the latest pending state to every listener. Runs on the EDT.
+     */
+    private void deliver() {
+        lastDeliveryNanos = System.nanoTime();
+        //allow the next notification to schedule a new delivery before we read the pending state,
+        //so an update that races with this delivery is never left behind
+        deliveryScheduled.set(false);
+
+        AlarmStatus alarmStatus = pendingAlarmStatus.getAndSet(null);
+        Boolean catDetected = pendingCatDetected.getAndSet(null);
+        boolean sensorChange = pendingSensorChange.getAndSet(false);
+
+        statusListeners.forEach(sl -> {
+            if(alarmStatus != null) {
+                sl.notify(alarmStatus);
+            }
+            if(catDetected != null) {
+                sl.catDetected(catDetected);
+            }
+            if(sensorChange) {
+                sl.sensorStatusChanged();
+            }
+        });
+    }
+}
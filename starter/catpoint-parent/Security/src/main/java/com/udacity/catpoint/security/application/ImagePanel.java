@@ -11,6 +11,7 @@ import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.CancellationException;
 
 /** Panel containing the 'camera' output. Allows users to 'refresh' the camera
  * by uploading their own picture, and 'scan' the picture, sending it for image analysis
@@ -29,7 +30,6 @@ public class ImagePanel extends JPanel implements StatusListener {
         super();
         setLayout(new MigLayout());
         this.securityService = securityService;
-        securityService.addStatusListener(this);
 
         cameraHeader = new JLabel("Camera Feed");
         cameraHeader.setFont(StyleService.HEADING_FONT);
@@ -62,7 +62,13 @@ public class ImagePanel extends JPanel implements StatusListener {
         //button that sends the image to the image service
         JButton scanPictureButton = new JButton("Scan Picture");
         scanPictureButton.addActionListener(e -> {
-            securityService.processImage(currentCameraImage);
+            //scan in the background so the window stays responsive while the image service works
+            securityService.processImageAsync(currentCameraImage).exceptionally(ex -> {
+                if(!(ex.getCause() instanceof CancellationException) && !(ex instanceof CancellationException)) {
+                    SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(null, "Unable to scan picture."));
+                }
+                return null;
+            });
         });
 
         add(cameraHeader, "span 3, wrap");
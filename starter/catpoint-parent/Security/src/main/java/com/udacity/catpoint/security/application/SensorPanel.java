@@ -8,6 +8,7 @@ import com.udacity.catpoint.security.service.StyleService;
 import net.miginfocom.swing.MigLayout;
 
 import javax.swing.*;
+import java.util.ArrayList;
 
 /**
  * Panel that allows users to add sensors to their system. Sensors may be
@@ -24,6 +25,11 @@ public class SensorPanel extends JPanel implements StatusListener  {
     private JComboBox newSensorTypeDropdown = new JComboBox(SensorType.values());
     private JButton addNewSensorButton = new JButton("Add New Sensor");
 
+    private SensorTableModel sensorTableModel = new SensorTableModel();
+    private JTable sensorTable = new JTable(sensorTableModel);
+    private JButton sensorToggleButton = new JButton("Activate");
+    private JButton sensorRemoveButton = new JButton("Remove Sensor");
+
     private JPanel sensorListPanel;
     private JPanel newSensorPanel;
 
@@ -38,10 +44,9 @@ public class SensorPanel extends JPanel implements StatusListener  {
                         SensorType.valueOf(newSensorTypeDropdown.getSelectedItem().toString()))));
 
         newSensorPanel = buildAddSensorPanel();
-        sensorListPanel = new JPanel();
-        sensorListPanel.setLayout(new MigLayout());
+        sensorListPanel = buildSensorListPanel();
 
-        updateSensorList(sensorListPanel);
+        updateSensorList();
 
         add(panelLabel, "wrap");
         add(newSensorPanel, "span");
@@ -63,60 +68,88 @@ public class SensorPanel extends JPanel implements StatusListener  {
     }
 
     /**
-     * Requests the current list of sensors and updates the provided panel to display them. Sensors
-     * will display in the order that they are created.
-     * @param p The Panel to populate with the current list of sensors
+     * Builds the panel listing the sensors. The table only renders the rows that are visible, and the
+     * buttons below it act on the selected sensor.
      */
-    private void updateSensorList(JPanel p) {
-        p.removeAll();
-        securityService.getSensors().stream().sorted().forEach(s -> {
-            JLabel sensorLabel = new JLabel(String.format("%s(%s): %s", s.getName(),  s.getSensorType().toString(),(s.getActive() ? "Active" : "Inactive")));
-            JButton sensorToggleButton = new JButton((s.getActive() ? "Deactivate" : "Activate"));
-            JButton sensorRemoveButton = new JButton("Remove Sensor");
-
-            sensorToggleButton.addActionListener(e -> setSensorActivity(s, !s.getActive()) );
-            sensorRemoveButton.addActionListener(e -> removeSensor(s));
-
-            //hard code some sizes, tsk tsk
-            p.add(sensorLabel, "width 300:300:300");
-            p.add(sensorToggleButton, "width 100:100:100");
-            p.add(sensorRemoveButton, "wrap");
+    private JPanel buildSensorListPanel() {
+        sensorTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        sensorTable.setFillsViewportHeight(true);
+        sensorTable.getSelectionModel().addListSelectionListener(e -> updateSensorButtons());
+        sensorTableModel.addTableModelListener(e -> updateSensorButtons());
+
+        sensorToggleButton.addActionListener(e -> {
+            Sensor s = getSelectedSensor();
+            if(s != null) {
+                setSensorActivity(s, !s.getActive());
+            }
+        });
+        sensorRemoveButton.addActionListener(e -> {
+            Sensor s = getSelectedSensor();
+            if(s != null) {
+                removeSensor(s);
+            }
         });
+        updateSensorButtons();
+
+        JPanel p = new JPanel();
+        p.setLayout(new MigLayout());
+        //hard code some sizes, tsk tsk
+        p.add(new JScrollPane(sensorTable), "width 500:500:500, height 200:200:200, span, wrap");
+        p.add(sensorToggleButton, "width 100:100:100");
+        p.add(sensorRemoveButton);
+        return p;
+    }
+
+    /**
+     * Requests the current list of sensors and updates the table to display them. Only rows whose
+     * sensor changed are redrawn. Sensors display in their natural sort order.
+     */
+    private void updateSensorList() {
+        sensorTableModel.setSensors(new ArrayList<>(securityService.getSensors()));
+    }
+
+    private Sensor getSelectedSensor() {
+        int row = sensorTable.getSelectedRow();
+        return row < 0 ? null : sensorTableModel.getSensorAt(sensorTable.convertRowIndexToModel(row));
+    }
 
-        repaint();
-        revalidate();
+    private void updateSensorButtons() {
+        Sensor s = getSelectedSensor();
+        sensorToggleButton.setEnabled(s != null);
+        sensorRemoveButton.setEnabled(s != null);
+        sensorToggleButton.setText(s != null && s.getActive() ? "Deactivate" : "Activate");
     }
 
     /**
-     * Asks the securityService to change a sensor activation status and then rebuilds the current sensor list
+     * Asks the securityService to change a sensor activation status and then refreshes that sensor's row
      * @param sensor The sensor to update
      * @param isActive The sensor's activation status
      */
     private void setSensorActivity(Sensor sensor, Boolean isActive) {
         securityService.changeSensorActivationStatus(sensor, isActive);
-        updateSensorList(sensorListPanel);
+        sensorTableModel.sensorChanged(sensor);
     }
 
     /**
-     * Adds a sensor to the securityService and then rebuilds the sensor list
+     * Adds a sensor to the securityService and then refreshes the sensor list
      * @param sensor The sensor to add
      */
     private void addSensor(Sensor sensor) {
         if(securityService.getSensors().size() < 4) {
             securityService.addSensor(sensor);
-            updateSensorList(sensorListPanel);
+            updateSensorList();
         } else {
             JOptionPane.showMessageDialog(null, "To add more than 4 sensors, please subscribe to our Premium Membership!");
         }
     }
 
     /**
-     * Remove a sensor from the securityService and then rebuild the sensor list
+     * Remove a sensor from the securityService and then refresh the sensor list
      * @param sensor The sensor to remove
      */
     private void removeSensor(Sensor sensor) {
         securityService.removeSensor(sensor);
-        updateSensorList(sensorListPanel);
+        updateSensorList();
     }
 
     @Override
@@ -131,6 +164,6 @@ public class SensorPanel extends JPanel implements StatusListener  {
 
     @Override
     public void sensorStatusChanged() {
-        updateSensorList(sensorListPanel);
+        updateSensorList();
     }
 }
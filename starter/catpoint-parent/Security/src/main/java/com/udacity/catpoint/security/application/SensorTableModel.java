@@ -0,0 +1,176 @@
+package com.udacity.catpoint.security.application;
+
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorType;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Table model backing the sensor list. Remembers what each row last displayed, so refreshing it
+ * with the current sensors only fires change events for the rows that actually changed, and a
+ * single added or removed sensor is reported as a single inserted or deleted row.
+ */
+public class SensorTableModel extends AbstractTableModel {
+
+    private static final String[] COLUMNS = {"Name", "Type", "Status"};
+
+    private final List<Row> rows = new ArrayList<>();
+    private final Map<UUID, Integer> rowIndex = new HashMap<>();
+
+    /**
+     * Replaces the displayed sensors.
+     * @param sensors The current sensors, in display order
+     */
+    public void setSensors(List<Sensor> sensors) {
+        int oldSize = rows.size();
+        int newSize = sensors.size();
+        int first = 0;
+        while(first < oldSize && first < newSize && rows.get(first).isFor(sensors.get(first))) {
+            first++;
+        }
+
+        if(oldSize == newSize) {
+            for(int i = first; i < newSize; i++) {
+                if(!rows.get(i).isFor(sensors.get(i))) {
+                    replaceAll(sensors);
+                    return;
+                }
+            }
+            updateRows(sensors, 0, newSize);
+        } else if(newSize == oldSize + 1 && sameRows(sensors, first + 1, first, oldSize)) {
+            updateRows(sensors, 0, first);
+            rows.add(first, new Row(sensors.get(first)));
+            reindex();
+            fireTableRowsInserted(first, first);
+            updateRows(sensors, first + 1, newSize);
+        } else if(newSize == oldSize - 1 && sameRows(sensors, first, first + 1, oldSize)) {
+            updateRows(sensors, 0, first);
+            rows.remove(first);
+            reindex();
+            fireTableRowsDeleted(first, first);
+            updateRows(sensors, first, newSize);
+        } else {
+            replaceAll(sensors);
+        }
+    }
+
+    /**
+     * Refreshes the row showing the provided sensor, if there is one.
+     */
+    public void sensorChanged(Sensor sensor) {
+        Integer row = rowIndex.get(sensor.getSensorId());
+        if(row != null && rows.get(row).update(sensor)) {
+            fireTableRowsUpdated(row, row);
+        }
+    }
+
+    /**
+     * @return the sensor displayed in the provided row
+     */
+    public Sensor getSensorAt(int row) {
+        return rows.get(row).sensor;
+    }
+
+    @Override
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        Row row = rows.get(rowIndex);
+        return switch(columnIndex) {
+            case 0 -> row.name;
+            case 1 -> row.sensorType;
+            case 2 -> row.active ? "Active" : "Inactive";
+            default -> throw new IndexOutOfBoundsException("Unexpected column: " + columnIndex);
+        };
+    }
+
+    /**
+     * @return true if old rows from oldFrom to the end show the same sensors as new rows starting at newFrom
+     */
+    private boolean sameRows(List<Sensor> sensors, int newFrom, int oldFrom, int oldTo) {
+        for(int i = oldFrom, j = newFrom; i < oldTo; i++, j++) {
+            if(!rows.get(i).isFor(sensors.get(j))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Updates rows in the provided range, which must already show the same sensors, and fires an
+     * update event for each one whose displayed values changed.
+     */
+    private void updateRows(List<Sensor> sensors, int from, int to) {
+        for(int i = from; i < to; i++) {
+            if(rows.get(i).update(sensors.get(i))) {
+                fireTableRowsUpdated(i, i);
+            }
+        }
+    }
+
+    private void replaceAll(List<Sensor> sensors) {
+        rows.clear();
+        sensors.forEach(s -> rows.add(new Row(s)));
+        reindex();
+        fireTableDataChanged();
+    }
+
+    private void reindex() {
+        rowIndex.clear();
+        for(int i = 0; i < rows.size(); i++) {
+            rowIndex.put(rows.get(i).sensor.getSensorId(), i);
+        }
+    }
+
+    /**
+     * The sensor shown in a row, plus the values the row currently displays.
+     */
+    private static class Row {
+        private Sensor sensor;
+        private String name;
+        private SensorType sensorType;
+        private boolean active;
+
+        private Row(Sensor sensor) {
+            update(sensor);
+        }
+
+        private boolean isFor(Sensor sensor) {
+            return this.sensor.getSensorId().equals(sensor.getSensorId());
+        }
+
+        /**
+         * @return true if the displayed values changed
+         */
+        private boolean update(Sensor sensor) {
+            boolean active = Boolean.TRUE.equals(sensor.getActive());
+            boolean changed = !Objects.equals(name, sensor.getName())
+                    || sensorType != sensor.getSensorType()
+                    || this.active != active;
+            this.sensor = sensor;
+            this.name = sensor.getName();
+            this.sensorType = sensor.getSensorType();
+            this.active = active;
+            return changed;
+        }
+    }
+}
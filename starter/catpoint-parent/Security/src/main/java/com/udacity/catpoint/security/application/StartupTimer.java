@@ -0,0 +1,47 @@
+package com.udacity.catpoint.security.application;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Records how long each startup phase takes, in the order the phases ran.
+ */
+class StartupTimer {
+
+    private final Map<String, Long> phaseNanos = new LinkedHashMap<>();
+
+    <T> T time(String phase, Supplier<T> step) {
+        long start = System.nanoTime();
+        try {
+            return step.get();
+        } finally {
+            phaseNanos.merge(phase, System.nanoTime() - start, Long::sum);
+        }
+    }
+
+    void time(String phase, Runnable step) {
+        time(phase, () -> {
+            step.run();
+            return null;
+        });
+    }
+
+    /**
+     * @return each phase's duration in milliseconds, followed by the total and the JVM uptime
+     */
+    String summary() {
+        StringBuilder summary = new StringBuilder();
+        long total = 0;
+        for(Map.Entry<String, Long> phase : phaseNanos.entrySet()) {
+            total += phase.getValue();
+            summary.append(phase.getKey()).append('=').append(TimeUnit.NANOSECONDS.toMillis(phase.getValue())).append("ms ");
+        }
+        //uptime also covers JVM startup and class loading before main
+        return summary.append("total=").append(TimeUnit.NANOSECONDS.toMillis(total)).append("ms")
+                .append(" uptime=").append(ManagementFactory.getRuntimeMXBean().getUptime()).append("ms")
+                .toString();
+    }
+}
@@ -7,16 +7,17 @@ import java.awt.*;
  * Also contains metadata about what text and color is associated with the arming status.
  */
 public enum ArmingStatus {
-    DISARMED("Disarmed", new Color(120,200,30)),
-    ARMED_HOME("Armed - At Home", new Color(190,180,50)),
-    ARMED_AWAY("Armed - Away", new Color(170,30,150));
+    DISARMED("Disarmed", 0x78C81E),
+    ARMED_HOME("Armed - At Home", 0xBEB432),
+    ARMED_AWAY("Armed - Away", 0xAA1E96);
 
     private final String description;
-    private final Color color;
+    //plain rgb rather than a Color, for the same reason as AlarmStatus
+    private final int rgb;
 
-    ArmingStatus(String description, Color color) {
+    ArmingStatus(String description, int rgb) {
         this.description = description;
-        this.color = color;
+        this.rgb = rgb;
     }
 
     public String getDescription() {
@@ -24,6 +25,6 @@ public enum ArmingStatus {
     }
 
     public Color getColor() {
-        return color;
+        return new Color(rgb);
     }
 }
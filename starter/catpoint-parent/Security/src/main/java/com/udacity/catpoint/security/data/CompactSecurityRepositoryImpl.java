@@ -0,0 +1,95 @@
+package com.udacity.catpoint.security.data;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * In-memory repository backed by a {@link CompactSensorTable}, for nodes holding millions of
+ * sensors. Sensors passed in are copied into the table; {@link #getSensors()} returns a live set
+ * of flyweight views, in no particular order. Changing a view changes the stored sensor directly,
+ * so {@link #updateSensor(Sensor)} with a view costs only a lookup.
+ *
+ * Nothing is persisted. Hand views to another repository only after copying them into plain sensors.
+ *
+ * Not thread-safe: views read and write the table without any lock, so the repository and its
+ * views must stay on one thread, as they do behind a {@link com.udacity.catpoint.security.service.PremisesEngine}
+ * partition or a {@link com.udacity.catpoint.security.service.SecurityEventLoop}.
+ */
+public class CompactSecurityRepositoryImpl implements SecurityRepository {
+
+    private final CompactSensorTable sensors;
+    private AlarmStatus alarmStatus = AlarmStatus.NO_ALARM;
+    private ArmingStatus armingStatus = ArmingStatus.DISARMED;
+
+    public CompactSecurityRepositoryImpl() {
+        this.sensors = new CompactSensorTable();
+    }
+
+    /**
+     * @param expectedSensors Number of sensors to size the table for up front
+     */
+    public CompactSecurityRepositoryImpl(int expectedSensors) {
+        this.sensors = new CompactSensorTable(expectedSensors);
+    }
+
+    @Override
+    public void addSensor(Sensor sensor) {
+        sensors.put(sensor);
+    }
+
+    @Override
+    public void removeSensor(Sensor sensor) {
+        sensors.remove(sensor.getSensorId());
+    }
+
+    @Override
+    public void updateSensor(Sensor sensor) {
+        sensors.put(sensor);
+    }
+
+    @Override
+    public void updateSensors(Collection<Sensor> updated) {
+        updated.forEach(sensors::put);
+    }
+
+    @Override
+    public void setAlarmStatus(AlarmStatus alarmStatus) {
+        this.alarmStatus = alarmStatus;
+    }
+
+    @Override
+    public void setArmingStatus(ArmingStatus armingStatus) {
+        this.armingStatus = armingStatus;
+    }
+
+    @Override
+    public Set<Sensor> getSensors() {
+        return sensors.asSet();
+    }
+
+    /**
+     * @return a view of the stored sensor, or null if there is none
+     */
+    @Override
+    public Sensor getSensor(UUID sensorId) {
+        return sensors.get(sensorId);
+    }
+
+    @Override
+    public AlarmStatus getAlarmStatus() {
+        return alarmStatus;
+    }
+
+    @Override
+    public ArmingStatus getArmingStatus() {
+        return armingStatus;
+    }
+
+    /**
+     * @return number of sensors currently active
+     */
+    public int getActiveSensorCount() {
+        return sensors.getActiveCount();
+    }
+}
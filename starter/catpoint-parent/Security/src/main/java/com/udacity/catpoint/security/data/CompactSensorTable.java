@@ -0,0 +1,371 @@
+package com.udacity.catpoint.security.data;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Sensor storage for deployments with millions of sensors. Rather than one object per sensor,
+ * the table keeps one primitive array per field: the id as two longs, the type as a byte ordinal,
+ * the active flag as one bit, and a reference to a pooled name string, since most installations
+ * reuse a handful of names. Rows are found by id through an open-addressing index of ints. That
+ * comes to roughly 35 bytes per sensor, against well over 100 for a {@link Sensor} in a tree.
+ *
+ * Sensors are handed out as flyweight views: small {@link Sensor} subclasses holding only the id,
+ * whose getters and setters read and write the table directly. Views stay valid while their
+ * sensor is in the table and throw IllegalStateException once it has been removed.
+ *
+ * Removing a sensor moves the last row into its place, so {@link #asSet()} iterates in no
+ * particular order. Not thread-safe.
+ */
+public class CompactSensorTable {
+
+    private static final int EMPTY = -1;
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final SensorType[] SENSOR_TYPES = SensorType.values();
+
+    private long[] idHigh;
+    private long[] idLow;
+    private byte[] types;
+    private String[] names;
+    private final BitSet active = new BitSet();
+    private int size;
+
+    //row of each sensor by id hash, linear probing, kept at most half full
+    private int[] index;
+    private final Map<String, String> namePool = new HashMap<>();
+
+    private final Set<Sensor> sensorSet = new SensorSet();
+
+    public CompactSensorTable() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param initialCapacity Number of sensors the table can hold before it has to grow
+     */
+    public CompactSensorTable(int initialCapacity) {
+        int capacity = Math.max(initialCapacity, 1);
+        idHigh = new long[capacity];
+        idLow = new long[capacity];
+        types = new byte[capacity];
+        names = new String[capacity];
+        index = new int[Integer.highestOneBit(capacity * 2 - 1) << 1];
+        Arrays.fill(index, EMPTY);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return number of sensors currently active
+     */
+    public int getActiveCount() {
+        return active.cardinality();
+    }
+
+    /**
+     * Copies the provided sensor's fields into the table, replacing the row with the same id if
+     * there is one. The sensor itself is not retained.
+     * @return true if the sensor was not in the table before
+     */
+    public boolean put(Sensor sensor) {
+        UUID sensorId = sensor.getSensorId();
+        long high = sensorId.getMostSignificantBits();
+        long low = sensorId.getLeastSignificantBits();
+        int row = find(high, low);
+        boolean added = row == EMPTY;
+        if(added) {
+            row = append(high, low);
+        }
+        //a view of this very row has nothing to copy
+        if(!(sensor instanceof SensorView) || ((SensorView) sensor).table != this) {
+            setName(row, sensor.getName());
+            setSensorType(row, sensor.getSensorType());
+            active.set(row, Boolean.TRUE.equals(sensor.getActive()));
+        }
+        return added;
+    }
+
+    /**
+     * @return a view of the sensor with the provided id, or null if it isn't in the table
+     */
+    public Sensor get(UUID sensorId) {
+        int row = find(sensorId.getMostSignificantBits(), sensorId.getLeastSignificantBits());
+        return row == EMPTY ? null : new SensorView(this, idHigh[row], idLow[row]);
+    }
+
+    public boolean contains(UUID sensorId) {
+        return find(sensorId.getMostSignificantBits(), sensorId.getLeastSignificantBits()) != EMPTY;
+    }
+
+    /**
+     * @return true if the sensor was in the table
+     */
+    public boolean remove(UUID sensorId) {
+        int row = find(sensorId.getMostSignificantBits(), sensorId.getLeastSignificantBits());
+        if(row == EMPTY) {
+            return false;
+        }
+        removeRow(row);
+        return true;
+    }
+
+    public void clear() {
+        Arrays.fill(names, 0, size, null);
+        Arrays.fill(index, EMPTY);
+        active.clear();
+        size = 0;
+    }
+
+    /**
+     * @return a live set of views over the table. Adding a sensor to the set copies it into the table.
+     */
+    public Set<Sensor> asSet() {
+        return sensorSet;
+    }
+
+    private int append(long high, long low) {
+        if(size == idHigh.length) {
+            grow();
+        }
+        int row = size++;
+        idHigh[row] = high;
+        idLow[row] = low;
+        insertIndex(row);
+        return row;
+    }
+
+    private void grow() {
+        int capacity = idHigh.length + (idHigh.length >> 1) + 1;
+        idHigh = Arrays.copyOf(idHigh, capacity);
+        idLow = Arrays.copyOf(idLow, capacity);
+        types = Arrays.copyOf(types, capacity);
+        names = Arrays.copyOf(names, capacity);
+        if(capacity * 2 > index.length) {
+            index = new int[Integer.highestOneBit(capacity * 2 - 1) << 1];
+            Arrays.fill(index, EMPTY);
+            for(int row = 0; row < size; row++) {
+                insertIndex(row);
+            }
+        }
+    }
+
+    /**
+     * Fills the removed row with the last row, so the rows stay contiguous.
+     */
+    private void removeRow(int row) {
+        removeIndex(slotOf(row));
+        int last = size - 1;
+        if(row != last) {
+            index[slotOf(last)] = row;
+            idHigh[row] = idHigh[last];
+            idLow[row] = idLow[last];
+            types[row] = types[last];
+            names[row] = names[last];
+            active.set(row, active.get(last));
+        }
+        names[last] = null;
+        active.clear(last);
+        size = last;
+    }
+
+    private int find(long high, long low) {
+        int mask = index.length - 1;
+        for(int slot = hash(high, low) & mask; ; slot = (slot + 1) & mask) {
+            int row = index[slot];
+            if(row == EMPTY || (idHigh[row] == high && idLow[row] == low)) {
+                return row;
+            }
+        }
+    }
+
+    private int slotOf(int row) {
+        int mask = index.length - 1;
+        int slot = hash(idHigh[row], idLow[row]) & mask;
+        while(index[slot] != row) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void insertIndex(int row) {
+        int mask = index.length - 1;
+        int slot = hash(idHigh[row], idLow[row]) & mask;
+        while(index[slot] != EMPTY) {
+            slot = (slot + 1) & mask;
+        }
+        index[slot] = row;
+    }
+
+    /**
+     * Empties the slot and shifts later entries of the same probe run back, so lookups never
+     * stop early at the hole.
+     */
+    private void removeIndex(int slot) {
+        int mask = index.length - 1;
+        index[slot] = EMPTY;
+        for(int next = (slot + 1) & mask; index[next] != EMPTY; next = (next + 1) & mask) {
+            int row = index[next];
+            int home = hash(idHigh[row], idLow[row]) & mask;
+            //move it back unless its home slot lies between the hole and where it is now
+            if(((next - home) & mask) >= ((next - slot) & mask)) {
+                index[slot] = row;
+                index[next] = EMPTY;
+                slot = next;
+            }
+        }
+    }
+
+    private static int hash(long high, long low) {
+        long h = (high ^ low) * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private String getName(int row) {
+        return names[row];
+    }
+
+    private void setName(int row, String name) {
+        names[row] = name == null ? null : namePool.computeIfAbsent(name, n -> n);
+    }
+
+    private SensorType getSensorType(int row) {
+        return SENSOR_TYPES[types[row]];
+    }
+
+    private void setSensorType(int row, SensorType sensorType) {
+        types[row] = (byte) Objects.requireNonNull(sensorType, "sensorType").ordinal();
+    }
+
+    /**
+     * Sensor whose state lives in the table. Holds only the table and the id, and looks up its row on each access.
+     */
+    private static class SensorView extends Sensor {
+        private final CompactSensorTable table;
+        private final long idHigh;
+        private final long idLow;
+
+        private SensorView(CompactSensorTable table, long idHigh, long idLow) {
+            this.table = table;
+            this.idHigh = idHigh;
+            this.idLow = idLow;
+        }
+
+        private int row() {
+            int row = table.find(idHigh, idLow);
+            if(row == EMPTY) {
+                throw new IllegalStateException("Sensor " + getSensorId() + " has been removed");
+            }
+            return row;
+        }
+
+        @Override
+        public UUID getSensorId() {
+            return new UUID(idHigh, idLow);
+        }
+
+        @Override
+        public void setSensorId(UUID sensorId) {
+            throw new UnsupportedOperationException("The id of a stored sensor can't change");
+        }
+
+        @Override
+        public String getName() {
+            return table.getName(row());
+        }
+
+        @Override
+        public void setName(String name) {
+            table.setName(row(), name);
+        }
+
+        @Override
+        public Boolean getActive() {
+            return table.active.get(row());
+        }
+
+        @Override
+        public void setActive(Boolean active) {
+            table.active.set(row(), Boolean.TRUE.equals(active));
+        }
+
+        @Override
+        public SensorType getSensorType() {
+            return table.getSensorType(row());
+        }
+
+        @Override
+        public void setSensorType(SensorType sensorType) {
+            table.setSensorType(row(), sensorType);
+        }
+    }
+
+    private class SensorSet extends AbstractSet<Sensor> {
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof Sensor && CompactSensorTable.this.contains(((Sensor) o).getSensorId());
+        }
+
+        @Override
+        public boolean add(Sensor sensor) {
+            return put(sensor);
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            return o instanceof Sensor && CompactSensorTable.this.remove(((Sensor) o).getSensorId());
+        }
+
+        @Override
+        public void clear() {
+            CompactSensorTable.this.clear();
+        }
+
+        @Override
+        public Iterator<Sensor> iterator() {
+            return new Iterator<>() {
+                private int next;
+                private boolean removable;
+
+                @Override
+                public boolean hasNext() {
+                    return next < size;
+                }
+
+                @Override
+                public Sensor next() {
+                    if(next >= size) {
+                        throw new NoSuchElementException();
+                    }
+                    removable = true;
+                    int row = next++;
+                    return new SensorView(CompactSensorTable.this, idHigh[row], idLow[row]);
+                }
+
+                @Override
+                public void remove() {
+                    if(!removable) {
+                        throw new IllegalStateException();
+                    }
+                    removable = false;
+                    //the last row moves into the removed one, and hasn't been visited yet
+                    removeRow(--next);
+                }
+            };
+        }
+    }
+}
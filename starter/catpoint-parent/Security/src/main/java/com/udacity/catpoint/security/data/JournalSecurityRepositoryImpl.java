@@ -0,0 +1,323 @@
+package com.udacity.catpoint.security.data;
+
+import com.udacity.catpoint.security.metrics.LatencyHistogram;
+import com.udacity.catpoint.security.metrics.MetricsRegistry;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+/**
+ * Repository that persists each change as a small record appended to a journal file, so the
+ * cost of a write does not depend on how many sensors are installed. Every so often the full
+ * state is written to a snapshot file and the journal is truncated. On startup the snapshot is
+ * loaded and the journal tail replayed on top of it.
+ *
+ * Journal records are framed as [int length][int crc32][byte type][payload], with sensors and
+ * statuses in the payload encoded by {@link SecurityStateCodec}. A torn or corrupt
+ * record at the end of the journal (for example after a power cut) ends the replay and is
+ * truncated away.
+ *
+ * The time taken by each append, including any snapshot it triggers, is recorded in the
+ * repository.journal.write histogram of the default {@link MetricsRegistry}.
+ */
+public class JournalSecurityRepositoryImpl implements SecurityRepository, AutoCloseable {
+
+    private static final String SNAPSHOT_FILE = "catpoint.snapshot";
+    private static final String JOURNAL_FILE = "catpoint.journal";
+    private static final int SNAPSHOT_MAGIC = 0x43505331; //"CPS1"
+    private static final int DEFAULT_SNAPSHOT_INTERVAL = 10_000;
+    private static final int RECORD_HEADER_BYTES = 8;
+
+    //journal record types
+    private static final byte SENSOR_PUT = 1;
+    private static final byte SENSOR_REMOVE = 2;
+    private static final byte ALARM_STATUS = 3;
+    private static final byte ARMING_STATUS = 4;
+
+    private final Path snapshotFile;
+    private final Path journalFile;
+    private final int snapshotInterval;
+    private final FileChannel journal;
+    private final CRC32 crc = new CRC32();
+    private ByteBuffer recordBuffer = ByteBuffer.allocateDirect(256);
+    private int recordsSinceSnapshot;
+    private final LatencyHistogram writeLatency = MetricsRegistry.getDefault().histogram("repository.journal.write");
+
+    private final SensorStore sensors = new SensorStore();
+    private AlarmStatus alarmStatus = AlarmStatus.NO_ALARM;
+    private ArmingStatus armingStatus = ArmingStatus.DISARMED;
+
+    public JournalSecurityRepositoryImpl(Path directory) {
+        this(directory, DEFAULT_SNAPSHOT_INTERVAL);
+    }
+
+    /**
+     * @param directory Directory holding the snapshot and journal files. Created if missing.
+     * @param snapshotInterval Number of journal records to append before taking a new snapshot.
+     */
+    public JournalSecurityRepositoryImpl(Path directory, int snapshotInterval) {
+        if(snapshotInterval <= 0) {
+            throw new IllegalArgumentException("Snapshot interval must be positive: " + snapshotInterval);
+        }
+        this.snapshotFile = directory.resolve(SNAPSHOT_FILE);
+        this.journalFile = directory.resolve(JOURNAL_FILE);
+        this.snapshotInterval = snapshotInterval;
+        try {
+            Files.createDirectories(directory);
+            loadSnapshot();
+            journal = FileChannel.open(journalFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long validLength = replayJournal();
+            journal.truncate(validLength);
+            journal.position(validLength);
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to open security journal in " + directory, ioe);
+        }
+    }
+
+    @Override
+    public synchronized void addSensor(Sensor sensor) {
+        sensors.add(sensor);
+        appendSensor(SENSOR_PUT, sensor);
+    }
+
+    @Override
+    public synchronized void removeSensor(Sensor sensor) {
+        sensors.remove(sensor);
+        appendSensor(SENSOR_REMOVE, sensor);
+    }
+
+    @Override
+    public synchronized void updateSensor(Sensor sensor) {
+        sensors.put(sensor);
+        appendSensor(SENSOR_PUT, sensor);
+    }
+
+    @Override
+    public synchronized void setAlarmStatus(AlarmStatus alarmStatus) {
+        this.alarmStatus = alarmStatus;
+        SecurityStateCodec.putAlarmStatus(startRecord(ALARM_STATUS, 1), alarmStatus);
+        append();
+    }
+
+    @Override
+    public synchronized void setArmingStatus(ArmingStatus armingStatus) {
+        this.armingStatus = armingStatus;
+        SecurityStateCodec.putArmingStatus(startRecord(ARMING_STATUS, 1), armingStatus);
+        append();
+    }
+
+    @Override
+    public Set<Sensor> getSensors() {
+        return sensors;
+    }
+
+    @Override
+    public synchronized Sensor getSensor(UUID sensorId) {
+        return sensors.get(sensorId);
+    }
+
+    @Override
+    public AlarmStatus getAlarmStatus() {
+        return alarmStatus;
+    }
+
+    @Override
+    public ArmingStatus getArmingStatus() {
+        return armingStatus;
+    }
+
+    /**
+     * Forces journal records written so far out to the storage device.
+     */
+    @Override
+    public synchronized void flush() {
+        try {
+            journal.force(false);
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to flush security journal", ioe);
+        }
+    }
+
+    /**
+     * Writes a fresh snapshot and closes the journal.
+     */
+    @Override
+    public synchronized void close() {
+        try {
+            snapshot();
+            journal.close();
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to close security journal", ioe);
+        }
+    }
+
+    /**
+     * Writes the full state to the snapshot file and empties the journal. The snapshot is written
+     * to a temporary file first and moved into place, so a crash leaves either the old snapshot
+     * plus the full journal or the new snapshot, both of which replay to the same state.
+     */
+    public synchronized void snapshot() throws IOException {
+        ByteBuffer b = ByteBuffer.allocate(14 + sensors.size() * 64);
+        b.putInt(SNAPSHOT_MAGIC);
+        SecurityStateCodec.putAlarmStatus(b, alarmStatus);
+        SecurityStateCodec.putArmingStatus(b, armingStatus);
+        b.putInt(sensors.size());
+        for(Sensor sensor : sensors) {
+            b = ensureCapacity(b, SecurityStateCodec.sensorBytes(sensor));
+            SecurityStateCodec.putSensor(b, sensor);
+        }
+        b.flip();
+
+        Path tmp = snapshotFile.resolveSibling(SNAPSHOT_FILE + ".tmp");
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while(b.hasRemaining()) {
+                out.write(b);
+            }
+            out.force(true);
+        }
+        Files.move(tmp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        journal.truncate(0);
+        journal.position(0);
+        recordsSinceSnapshot = 0;
+    }
+
+    private void loadSnapshot() throws IOException {
+        if(!Files.exists(snapshotFile)) {
+            return;
+        }
+        ByteBuffer b = ByteBuffer.wrap(Files.readAllBytes(snapshotFile));
+        if(b.getInt() != SNAPSHOT_MAGIC) {
+            throw new IOException("Not a catpoint snapshot: " + snapshotFile);
+        }
+        alarmStatus = SecurityStateCodec.getAlarmStatus(b);
+        armingStatus = SecurityStateCodec.getArmingStatus(b);
+        int count = b.getInt();
+        for(int i = 0; i < count; i++) {
+            sensors.add(SecurityStateCodec.getSensor(b));
+        }
+    }
+
+    /**
+     * Applies every intact journal record to the in-memory state.
+     * @return the length of the journal up to the end of the last intact record
+     */
+    private long replayJournal() throws IOException {
+        ByteBuffer b = ByteBuffer.allocate((int) journal.size());
+        while(b.hasRemaining() && journal.read(b) >= 0) {
+            //keep reading until the journal is fully loaded
+        }
+        b.flip();
+
+        long validLength = 0;
+        while(b.remaining() >= RECORD_HEADER_BYTES) {
+            int length = b.getInt();
+            int checksum = b.getInt();
+            if(length <= 0 || length > b.remaining()) {
+                break;
+            }
+            ByteBuffer record = b.slice();
+            record.limit(length);
+            crc.reset();
+            crc.update(record.duplicate());
+            if((int) crc.getValue() != checksum) {
+                break;
+            }
+            try {
+                applyRecord(record);
+            } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+                break;
+            }
+            b.position(b.position() + length);
+            validLength = b.position();
+            recordsSinceSnapshot++;
+        }
+        return validLength;
+    }
+
+    private void applyRecord(ByteBuffer record) {
+        byte type = record.get();
+        switch(type) {
+            case SENSOR_PUT -> sensors.put(SecurityStateCodec.getSensor(record));
+            case SENSOR_REMOVE -> {
+                Sensor sensor = new Sensor();
+                sensor.setSensorId(new UUID(record.getLong(), record.getLong()));
+                sensors.remove(sensor);
+            }
+            case ALARM_STATUS -> alarmStatus = SecurityStateCodec.getAlarmStatus(record);
+            case ARMING_STATUS -> armingStatus = SecurityStateCodec.getArmingStatus(record);
+            default -> throw new IndexOutOfBoundsException("Unknown journal record type: " + type);
+        }
+    }
+
+    private void appendSensor(byte type, Sensor sensor) {
+        if(type == SENSOR_REMOVE) {
+            ByteBuffer b = startRecord(type, 16);
+            b.putLong(sensor.getSensorId().getMostSignificantBits());
+            b.putLong(sensor.getSensorId().getLeastSignificantBits());
+        } else {
+            SecurityStateCodec.putSensor(startRecord(type, SecurityStateCodec.sensorBytes(sensor)), sensor);
+        }
+        append();
+    }
+
+    /**
+     * Clears the shared record buffer and writes the record type, leaving room for the header.
+     */
+    private ByteBuffer startRecord(byte type, int payloadBytes) {
+        int needed = RECORD_HEADER_BYTES + 1 + payloadBytes;
+        if(recordBuffer.capacity() < needed) {
+            recordBuffer = ByteBuffer.allocateDirect(Math.max(needed, recordBuffer.capacity() * 2));
+        }
+        recordBuffer.clear();
+        recordBuffer.position(RECORD_HEADER_BYTES);
+        recordBuffer.put(type);
+        return recordBuffer;
+    }
+
+    /**
+     * Fills in the header of the record in the shared buffer and appends it to the journal.
+     */
+    private void append() {
+        long start = System.nanoTime();
+        ByteBuffer b = recordBuffer;
+        int end = b.position();
+        b.limit(end);
+        b.position(RECORD_HEADER_BYTES);
+        crc.reset();
+        crc.update(b);
+        b.putInt(0, end - RECORD_HEADER_BYTES);
+        b.putInt(4, (int) crc.getValue());
+        b.position(0);
+        try {
+            while(b.hasRemaining()) {
+                journal.write(b);
+            }
+            if(++recordsSinceSnapshot >= snapshotInterval) {
+                snapshot();
+            }
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to append to security journal", ioe);
+        }
+        writeLatency.recordSince(start);
+    }
+
+    private static ByteBuffer ensureCapacity(ByteBuffer b, int extra) {
+        if(b.remaining() >= extra) {
+            return b;
+        }
+        ByteBuffer bigger = ByteBuffer.allocate(Math.max(b.capacity() * 2, b.position() + extra));
+        b.flip();
+        bigger.put(b);
+        return bigger;
+    }
+}
@@ -2,20 +2,59 @@ package com.udacity.catpoint.security.data;
 
 import com.google.common.reflect.TypeToken;
 import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+import com.udacity.catpoint.security.metrics.LatencyHistogram;
+import com.udacity.catpoint.security.metrics.MetricsRegistry;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
 import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
-import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.prefs.Preferences;
 
 /**
  * Fake repository implementation for demo purposes. Stores state information in local
  * memory and writes it to user preferences between app loads. This implementation is
  * intentionally a little hard to use in unit tests, so watch out!
+ *
+ * By default every change is written to preferences immediately. When constructed with a flush
+ * interval the repository runs in write-behind mode instead: changes only mark their preference
+ * key dirty, and a background thread writes one snapshot per dirty key every interval (or sooner,
+ * once the configured number of changes has piled up). Call {@link #flush()} to force pending
+ * changes out; a shutdown hook does the same on a clean exit.
+ *
+ * Sensors are stored either as a single JSON value, or in the compact {@link SecurityStateCodec}
+ * binary format split across as many preference values as needed, since each value is limited to
+ * {@link Preferences#MAX_VALUE_LENGTH} characters. Binary is the default. Sensors found in the
+ * other format when they are first loaded are rewritten in the configured one, so existing JSON
+ * data migrates on first load.
+ *
+ * The time taken to serialize and store each preference value is recorded in the
+ * repository.prefs.write histogram of the default {@link MetricsRegistry}.
  */
 public class PretendDatabaseSecurityRepositoryImpl implements SecurityRepository{
 
-    private Set<Sensor> sensors;
+    /**
+     * How sensors are written to preferences.
+     */
+    public enum SensorFormat {
+        JSON, BINARY
+    }
+
+    private final SensorStore sensors = new SensorStore();
+    private volatile boolean sensorsLoaded; //set while holding this
     private AlarmStatus alarmStatus;
     private ArmingStatus armingStatus;
 
@@ -23,63 +62,139 @@ public class PretendDatabaseSecurityRepositoryImpl implements SecurityRepository
     private static final String SENSORS = "SENSORS";
     private static final String ALARM_STATUS = "ALARM_STATUS";
     private static final String ARMING_STATUS = "ARMING_STATUS";
+    //binary sensors: [generation]:[chunk count], pointing at chunks stored under SENSORS.[generation].[index]
+    private static final String SENSOR_CHUNKS = "SENSOR_CHUNKS";
+    //preferences store byte arrays as base64, so this many bytes fit in one value
+    private static final int CHUNK_BYTES = Preferences.MAX_VALUE_LENGTH / 4 * 3;
 
-    private static final Preferences prefs = Preferences.userNodeForPackage(PretendDatabaseSecurityRepositoryImpl.class);
+    private final Preferences prefs;
+    private final SensorFormat format;
+    //sensor snapshots are numbered so a slow write can't overwrite a newer one
+    private long sensorGeneration; //guarded by this
+    private final Object sensorWriteLock = new Object();
+    private long writtenGeneration; //guarded by sensorWriteLock
     private static final Gson gson = new Gson(); //used to serialize objects into JSON
+    private static final Type SENSOR_SET_TYPE = new TypeToken<Set<Sensor>>() {
+    }.getType();
+
+    //write-behind state. dirtyKeys and pendingChanges are guarded by this
+    private final boolean writeBehind;
+    private final int flushThreshold;
+    private final Set<String> dirtyKeys = new LinkedHashSet<>();
+    private int pendingChanges;
+    private boolean flushQueued;
+    private final Object flushLock = new Object(); //keeps concurrent flushes from writing out of order
+    private final ScheduledExecutorService flusher;
+    private final Thread shutdownHook;
+    private final LatencyHistogram writeLatency = MetricsRegistry.getDefault().histogram("repository.prefs.write");
 
     public PretendDatabaseSecurityRepositoryImpl() {
+        this(0, 0);
+    }
+
+    /**
+     * Creates a repository that coalesces preference writes in the background.
+     * @param flushIntervalMillis How often pending changes are written. Zero or less writes every change immediately.
+     * @param flushThreshold Number of pending changes that triggers an early flush. Zero or less only flushes on the interval.
+     */
+    public PretendDatabaseSecurityRepositoryImpl(long flushIntervalMillis, int flushThreshold) {
+        this(Preferences.userNodeForPackage(PretendDatabaseSecurityRepositoryImpl.class), flushIntervalMillis, flushThreshold);
+    }
+
+    /**
+     * Creates a repository stored in the provided preferences node instead of the application's own,
+     * so benchmarks and experiments don't overwrite the user's sensors.
+     */
+    public PretendDatabaseSecurityRepositoryImpl(Preferences prefs, long flushIntervalMillis, int flushThreshold) {
+        this(prefs, SensorFormat.BINARY, flushIntervalMillis, flushThreshold);
+    }
+
+    /**
+     * @param format Format sensors are written in
+     */
+    public PretendDatabaseSecurityRepositoryImpl(Preferences prefs, SensorFormat format, long flushIntervalMillis, int flushThreshold) {
+        this.prefs = prefs;
+        this.format = format;
+
         //load system state from prefs, or else default
         alarmStatus = AlarmStatus.valueOf(prefs.get(ALARM_STATUS, AlarmStatus.NO_ALARM.toString()));
         armingStatus = ArmingStatus.valueOf(prefs.get(ARMING_STATUS, ArmingStatus.DISARMED.toString()));
 
-        //we've serialized our sensor objects for storage, which should be a good warning sign that
-        // this is likely an impractical solution for a real system
-        String sensorString = prefs.get(SENSORS, null);
-        if(sensorString == null) {
-            sensors = new TreeSet<>();
+        //sensors are only read when first needed, see loadSensors()
+
+        this.writeBehind = flushIntervalMillis > 0;
+        this.flushThreshold = flushThreshold;
+        if(writeBehind) {
+            flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "catpoint-prefs-flusher");
+                t.setDaemon(true);
+                return t;
+            });
+            flusher.scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+            shutdownHook = new Thread(this::flush, "catpoint-prefs-shutdown-flush");
+            Runtime.getRuntime().addShutdownHook(shutdownHook);
         } else {
-            Type type = new TypeToken<Set<Sensor>>() {
-            }.getType();
-            sensors = gson.fromJson(sensorString, type);
+            flusher = null;
+            shutdownHook = null;
         }
     }
 
     @Override
-    public void addSensor(Sensor sensor) {
+    public synchronized void addSensor(Sensor sensor) {
+        loadSensors();
         sensors.add(sensor);
-        prefs.put(SENSORS, gson.toJson(sensors));
+        changed(SENSORS);
     }
 
     @Override
-    public void removeSensor(Sensor sensor) {
+    public synchronized void removeSensor(Sensor sensor) {
+        loadSensors();
         sensors.remove(sensor);
-        prefs.put(SENSORS, gson.toJson(sensors));
+        changed(SENSORS);
     }
 
     @Override
-    public void updateSensor(Sensor sensor) {
-        sensors.remove(sensor);
-        sensors.add(sensor);
-        prefs.put(SENSORS, gson.toJson(sensors));
+    public synchronized void updateSensor(Sensor sensor) {
+        loadSensors();
+        sensors.put(sensor);
+        changed(SENSORS);
     }
 
     @Override
-    public void setAlarmStatus(AlarmStatus alarmStatus) {
+    public synchronized void updateSensors(Collection<Sensor> sensors) {
+        loadSensors();
+        sensors.forEach(this.sensors::put);
+        changed(SENSORS);
+    }
+
+    @Override
+    public synchronized void setAlarmStatus(AlarmStatus alarmStatus) {
         this.alarmStatus = alarmStatus;
-        prefs.put(ALARM_STATUS, this.alarmStatus.toString());
+        changed(ALARM_STATUS);
     }
 
     @Override
-    public void setArmingStatus(ArmingStatus armingStatus) {
+    public synchronized void setArmingStatus(ArmingStatus armingStatus) {
         this.armingStatus = armingStatus;
-        prefs.put(ARMING_STATUS, this.armingStatus.toString());
+        changed(ARMING_STATUS);
     }
 
     @Override
     public Set<Sensor> getSensors() {
+        if(!sensorsLoaded) {
+            synchronized (this) {
+                loadSensors();
+            }
+        }
         return sensors;
     }
 
+    @Override
+    public synchronized Sensor getSensor(UUID sensorId) {
+        loadSensors();
+        return sensors.get(sensorId);
+    }
+
     @Override
     public AlarmStatus getAlarmStatus() {
         return alarmStatus;
@@ -89,4 +204,200 @@ public class PretendDatabaseSecurityRepositoryImpl implements SecurityRepository
     public ArmingStatus getArmingStatus() {
         return armingStatus;
     }
+
+    /**
+     * Writes every pending change to preferences. Does nothing if there are no pending changes,
+     * which is always the case when the repository is not in write-behind mode.
+     */
+    @Override
+    public void flush() {
+        synchronized (flushLock) {
+            long start = System.nanoTime();
+            List<Runnable> writes = new ArrayList<>();
+            synchronized (this) {
+                dirtyKeys.forEach(key -> writes.add(prepareWrite(key)));
+                dirtyKeys.clear();
+                pendingChanges = 0;
+                flushQueued = false;
+            }
+            if(writes.isEmpty()) {
+                return;
+            }
+            writes.forEach(Runnable::run);
+            writeLatency.recordSince(start);
+        }
+    }
+
+    /**
+     * Flushes pending changes and stops the background flusher. The repository keeps working
+     * afterwards, but writes every change immediately.
+     */
+    public void close() {
+        if(!writeBehind) {
+            return;
+        }
+        flusher.shutdown();
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException e) {
+            //already shutting down, the hook will flush for us
+        }
+        flush();
+    }
+
+    /**
+     * Records a change to the value stored under the provided key. Must be called while holding this.
+     */
+    private void changed(String key) {
+        if(!writeBehind || flusher.isShutdown()) {
+            long start = System.nanoTime();
+            prepareWrite(key).run();
+            writeLatency.recordSince(start);
+            return;
+        }
+        dirtyKeys.add(key);
+        pendingChanges++;
+        if(flushThreshold > 0 && pendingChanges >= flushThreshold && !flushQueued) {
+            flushQueued = true;
+            flusher.execute(this::flush);
+        }
+    }
+
+    /**
+     * Serializes the current value stored under the provided key. Must be called while holding this.
+     * @return the preference writes for that value, which may run after the lock has been released
+     */
+    private Runnable prepareWrite(String key) {
+        return switch (key) {
+            case SENSORS -> {
+                long generation = ++sensorGeneration;
+                if(format == SensorFormat.JSON) {
+                    String json = gson.toJson(sensors, SENSOR_SET_TYPE);
+                    yield () -> writeJsonSensors(json, generation);
+                }
+                byte[] encoded = SecurityStateCodec.encodeSensors(sensors);
+                yield () -> writeBinarySensors(encoded, generation);
+            }
+            case ALARM_STATUS -> {
+                String value = alarmStatus.toString();
+                yield () -> prefs.put(ALARM_STATUS, value);
+            }
+            case ARMING_STATUS -> {
+                String value = armingStatus.toString();
+                yield () -> prefs.put(ARMING_STATUS, value);
+            }
+            default -> throw new IllegalArgumentException("Unexpected key: " + key);
+        };
+    }
+
+    private void writeJsonSensors(String json, long generation) {
+        synchronized (sensorWriteLock) {
+            if(generation < writtenGeneration) {
+                return;
+            }
+            prefs.put(SENSORS, json);
+            String previous = prefs.get(SENSOR_CHUNKS, null);
+            if(previous != null) {
+                prefs.remove(SENSOR_CHUNKS);
+                removeChunks(previous);
+            }
+            writtenGeneration = generation;
+        }
+    }
+
+    /**
+     * Writes the chunks of a new generation before switching the pointer over to it, so the
+     * pointer never names a half-written generation.
+     */
+    private void writeBinarySensors(byte[] encoded, long generation) {
+        synchronized (sensorWriteLock) {
+            if(generation < writtenGeneration) {
+                return;
+            }
+            int chunks = 0;
+            for(int offset = 0; offset < encoded.length; offset += CHUNK_BYTES) {
+                prefs.putByteArray(chunkKey(generation, chunks++), Arrays.copyOfRange(encoded, offset, Math.min(encoded.length, offset + CHUNK_BYTES)));
+            }
+            String previous = prefs.get(SENSOR_CHUNKS, null);
+            prefs.put(SENSOR_CHUNKS, generation + ":" + chunks);
+            prefs.remove(SENSORS);
+            if(previous != null) {
+                removeChunks(previous);
+            }
+            writtenGeneration = generation;
+        }
+    }
+
+    /**
+     * Reads the stored sensors, the first time they are needed. Statuses are available as soon as the
+     * repository is constructed, and startup doesn't pay for a large sensor inventory until something
+     * asks for a sensor. Must be called while holding this.
+     */
+    private void loadSensors() {
+        if(sensorsLoaded) {
+            return;
+        }
+        //after an interrupted write both formats may be present, and only the configured one is current
+        String sensorString = prefs.get(SENSORS, null);
+        String sensorChunks = prefs.get(SENSOR_CHUNKS, null);
+        if(sensorChunks != null && (format == SensorFormat.BINARY || sensorString == null)) {
+            loadBinarySensors(sensorChunks);
+            if(format != SensorFormat.BINARY) {
+                prepareWrite(SENSORS).run();
+            }
+        } else if(sensorString != null) {
+            loadJsonSensors(sensorString);
+            if(format != SensorFormat.JSON) {
+                prepareWrite(SENSORS).run();
+            }
+        }
+        sensorsLoaded = true;
+    }
+
+    /**
+     * Reads the JSON array one sensor at a time, rather than building the whole set through a TypeToken first.
+     */
+    private void loadJsonSensors(String sensorString) {
+        //we've serialized our sensor objects for storage, which should be a good warning sign that
+        // this is likely an impractical solution for a real system
+        try (JsonReader reader = new JsonReader(new StringReader(sensorString))) {
+            reader.beginArray();
+            while(reader.hasNext()) {
+                sensors.put(gson.fromJson(reader, Sensor.class));
+            }
+            reader.endArray();
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to read stored sensors", ioe);
+        }
+    }
+
+    private void loadBinarySensors(String sensorChunks) {
+        String[] pointer = sensorChunks.split(":");
+        long generation = Long.parseLong(pointer[0]);
+        int chunks = Integer.parseInt(pointer[1]);
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream(chunks * CHUNK_BYTES);
+        for(int i = 0; i < chunks; i++) {
+            byte[] chunk = prefs.getByteArray(chunkKey(generation, i), null);
+            if(chunk == null) {
+                throw new IllegalStateException("Stored sensors are missing chunk " + i + " of " + chunks);
+            }
+            encoded.writeBytes(chunk);
+        }
+        SecurityStateCodec.decodeSensors(ByteBuffer.wrap(encoded.toByteArray()), sensors::put);
+        sensorGeneration = generation;
+        writtenGeneration = generation;
+    }
+
+    private void removeChunks(String sensorChunks) {
+        String[] pointer = sensorChunks.split(":");
+        long generation = Long.parseLong(pointer[0]);
+        int chunks = Integer.parseInt(pointer[1]);
+        for(int i = 0; i < chunks; i++) {
+            prefs.remove(chunkKey(generation, i));
+        }
+    }
+
+    private static String chunkKey(long generation, int index) {
+        return SENSORS + "." + generation + "." + index;
+    }
 }
@@ -1,6 +1,8 @@
 package com.udacity.catpoint.security.data;
 
+import java.util.Collection;
 import java.util.Set;
+import java.util.UUID;
 
 /**
  * Interface showing the methods our security repository will need to support
@@ -15,5 +17,27 @@ public interface SecurityRepository {
     AlarmStatus getAlarmStatus();
     ArmingStatus getArmingStatus();
 
+    /**
+     * Updates several sensors at once. Implementations that pay a fixed cost per write should
+     * override this to persist the whole batch in one go.
+     */
+    default void updateSensors(Collection<Sensor> sensors) {
+        sensors.forEach(this::updateSensor);
+    }
+
+    /**
+     * @return the stored sensor with the provided id, or null if there is none. Implementations
+     * that index sensors by id should override this linear search.
+     */
+    default Sensor getSensor(UUID sensorId) {
+        return getSensors().stream().filter(s -> s.getSensorId().equals(sensorId)).findFirst().orElse(null);
+    }
+
+    /**
+     * Writes any buffered changes to storage. Implementations that persist every change
+     * immediately don't need to override this.
+     */
+    default void flush() {
+    }
 
 }
@@ -0,0 +1,117 @@
+package com.udacity.catpoint.security.data;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Compact binary encoding of sensors and system status, shared by the repositories that persist
+ * binary state.
+ *
+ * A sensor is [long id msb][long id lsb][byte type ordinal or -1][byte active][int name length or -1][utf-8 name].
+ * Statuses are a single ordinal byte. A sensor list is [byte format version][int count][sensors], so
+ * the layout can change later without misreading data written by older versions.
+ */
+public final class SecurityStateCodec {
+
+    public static final byte VERSION = 1;
+
+    private static final SensorType[] SENSOR_TYPES = SensorType.values();
+    private static final AlarmStatus[] ALARM_STATUSES = AlarmStatus.values();
+    private static final ArmingStatus[] ARMING_STATUSES = ArmingStatus.values();
+
+    private SecurityStateCodec() {
+    }
+
+    /**
+     * @return an upper bound on the bytes {@link #putSensor(ByteBuffer, Sensor)} writes for the sensor
+     */
+    public static int sensorBytes(Sensor sensor) {
+        String name = sensor.getName();
+        return 16 + 2 + 4 + (name == null ? 0 : name.length() * 3);
+    }
+
+    public static void putSensor(ByteBuffer b, Sensor sensor) {
+        b.putLong(sensor.getSensorId().getMostSignificantBits());
+        b.putLong(sensor.getSensorId().getLeastSignificantBits());
+        b.put(sensor.getSensorType() == null ? -1 : (byte) sensor.getSensorType().ordinal());
+        b.put((byte) (Boolean.TRUE.equals(sensor.getActive()) ? 1 : 0));
+        if(sensor.getName() == null) {
+            b.putInt(-1);
+        } else {
+            byte[] name = sensor.getName().getBytes(StandardCharsets.UTF_8);
+            b.putInt(name.length);
+            b.put(name);
+        }
+    }
+
+    public static Sensor getSensor(ByteBuffer b) {
+        Sensor sensor = new Sensor();
+        sensor.setSensorId(new UUID(b.getLong(), b.getLong()));
+        byte type = b.get();
+        sensor.setSensorType(type < 0 ? null : SENSOR_TYPES[type]);
+        sensor.setActive(b.get() != 0);
+        int nameLength = b.getInt();
+        if(nameLength >= 0) {
+            byte[] name = new byte[nameLength];
+            b.get(name);
+            sensor.setName(new String(name, StandardCharsets.UTF_8));
+        }
+        return sensor;
+    }
+
+    public static void putAlarmStatus(ByteBuffer b, AlarmStatus alarmStatus) {
+        b.put((byte) alarmStatus.ordinal());
+    }
+
+    public static AlarmStatus getAlarmStatus(ByteBuffer b) {
+        return ALARM_STATUSES[b.get()];
+    }
+
+    public static void putArmingStatus(ByteBuffer b, ArmingStatus armingStatus) {
+        b.put((byte) armingStatus.ordinal());
+    }
+
+    public static ArmingStatus getArmingStatus(ByteBuffer b) {
+        return ARMING_STATUSES[b.get()];
+    }
+
+    /**
+     * @return the versioned encoding of the sensors
+     */
+    public static byte[] encodeSensors(Collection<Sensor> sensors) {
+        int bytes = 1 + 4;
+        for(Sensor sensor : sensors) {
+            bytes += sensorBytes(sensor);
+        }
+        ByteBuffer b = ByteBuffer.allocate(bytes);
+        b.put(VERSION);
+        b.putInt(sensors.size());
+        for(Sensor sensor : sensors) {
+            putSensor(b, sensor);
+        }
+        byte[] encoded = new byte[b.position()];
+        b.flip().get(encoded);
+        return encoded;
+    }
+
+    /**
+     * Decodes a sensor list written by {@link #encodeSensors(Collection)}, handing each sensor to the
+     * consumer as soon as it has been read.
+     * @return the number of sensors decoded
+     * @throws IllegalArgumentException if the data was written by an unknown format version
+     */
+    public static int decodeSensors(ByteBuffer b, Consumer<Sensor> consumer) {
+        byte version = b.get();
+        if(version != VERSION) {
+            throw new IllegalArgumentException("Unsupported sensor format version: " + version);
+        }
+        int count = b.getInt();
+        for(int i = 0; i < count; i++) {
+            consumer.accept(getSensor(b));
+        }
+        return count;
+    }
+}
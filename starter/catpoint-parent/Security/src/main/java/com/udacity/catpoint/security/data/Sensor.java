@@ -8,6 +8,10 @@ import java.util.UUID;
 
 /**
  * Sensor POJO. Needs to know how to sort itself for display purposes.
+ *
+ * Equality, hashing and ordering go through the getters, so subclasses that keep their state
+ * elsewhere (such as the views handed out by {@link CompactSensorTable}) compare equal to plain
+ * sensors with the same id.
  */
 public class Sensor implements Comparable<Sensor> {
     private UUID sensorId;
@@ -28,14 +32,14 @@ public class Sensor implements Comparable<Sensor> {
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
+        if (!(o instanceof Sensor)) return false;
         Sensor sensor = (Sensor) o;
-        return sensorId.equals(sensor.sensorId);
+        return getSensorId().equals(sensor.getSensorId());
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(sensorId);
+        return Objects.hash(getSensorId());
     }
 
     public String getName() {
@@ -73,9 +77,9 @@ public class Sensor implements Comparable<Sensor> {
     @Override
     public int compareTo(Sensor o) {
         return ComparisonChain.start()
-                .compare(this.name, o.name)
-                .compare(this.sensorType.toString(), o.sensorType.toString())
-                .compare(this.sensorId, o.sensorId)
+                .compare(this.getName(), o.getName())
+                .compare(this.getSensorType().toString(), o.getSensorType().toString())
+                .compare(this.getSensorId(), o.getSensorId())
                 .result();
     }
 }
@@ -0,0 +1,160 @@
+package com.udacity.catpoint.security.data;
+
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Set of sensors indexed by sensor id. Membership checks and updates go through a hash index,
+ * so re-storing a sensor whose name and type haven't changed (the usual case when toggling it)
+ * costs a single lookup. A separately maintained sorted view provides the display ordering used
+ * by {@link Sensor#compareTo(Sensor)}; it is only touched when sensors are added, removed or renamed.
+ *
+ * Like the TreeSet it replaces, this class is not thread-safe.
+ */
+public class SensorStore extends AbstractSet<Sensor> {
+
+    private final Map<UUID, Entry> byId = new HashMap<>();
+    private final NavigableMap<SortKey, Sensor> sorted = new TreeMap<>();
+
+    /**
+     * Inserts the sensor, or replaces the stored sensor with the same id.
+     */
+    public void put(Sensor sensor) {
+        Entry entry = byId.get(sensor.getSensorId());
+        if(entry == null) {
+            SortKey key = new SortKey(sensor);
+            byId.put(sensor.getSensorId(), new Entry(sensor, key));
+            sorted.put(key, sensor);
+            return;
+        }
+        if(!entry.key.matches(sensor)) {
+            sorted.remove(entry.key);
+            entry.key = new SortKey(sensor);
+            sorted.put(entry.key, sensor);
+        } else if(entry.sensor != sensor) {
+            sorted.put(entry.key, sensor);
+        }
+        entry.sensor = sensor;
+    }
+
+    /**
+     * @return the stored sensor with the provided id, or null if there is none
+     */
+    public Sensor get(UUID sensorId) {
+        Entry entry = byId.get(sensorId);
+        return entry == null ? null : entry.sensor;
+    }
+
+    @Override
+    public boolean add(Sensor sensor) {
+        if(byId.containsKey(sensor.getSensorId())) {
+            return false;
+        }
+        put(sensor);
+        return true;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if(!(o instanceof Sensor)) {
+            return false;
+        }
+        Entry entry = byId.remove(((Sensor) o).getSensorId());
+        if(entry == null) {
+            return false;
+        }
+        sorted.remove(entry.key);
+        return true;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Sensor && byId.containsKey(((Sensor) o).getSensorId());
+    }
+
+    @Override
+    public int size() {
+        return byId.size();
+    }
+
+    @Override
+    public void clear() {
+        byId.clear();
+        sorted.clear();
+    }
+
+    /**
+     * Iterates the sensors in display order.
+     */
+    @Override
+    public Iterator<Sensor> iterator() {
+        Iterator<Map.Entry<SortKey, Sensor>> it = sorted.entrySet().iterator();
+        return new Iterator<>() {
+            private SortKey last;
+
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public Sensor next() {
+                Map.Entry<SortKey, Sensor> next = it.next();
+                last = next.getKey();
+                return next.getValue();
+            }
+
+            @Override
+            public void remove() {
+                it.remove();
+                byId.remove(last.sensorId);
+            }
+        };
+    }
+
+    private static class Entry {
+        private Sensor sensor;
+        private SortKey key;
+
+        private Entry(Sensor sensor, SortKey key) {
+            this.sensor = sensor;
+            this.key = key;
+        }
+    }
+
+    /**
+     * Immutable copy of the fields a sensor sorts by. Sensors are mutable, so the sorted view can't
+     * key on the sensor itself without losing track of it when it is renamed in place.
+     */
+    private static class SortKey implements Comparable<SortKey> {
+        private final String name;
+        private final SensorType sensorType;
+        private final String sensorTypeName;
+        private final UUID sensorId;
+
+        private SortKey(Sensor sensor) {
+            this.name = sensor.getName();
+            this.sensorType = sensor.getSensorType();
+            this.sensorTypeName = sensorType.toString();
+            this.sensorId = sensor.getSensorId();
+        }
+
+        private boolean matches(Sensor sensor) {
+            return sensorType == sensor.getSensorType() && name.equals(sensor.getName());
+        }
+
+        @Override
+        public int compareTo(SortKey o) {
+            int result = name.compareTo(o.name);
+            if(result == 0 && sensorType != o.sensorType) {
+                result = sensorTypeName.compareTo(o.sensorTypeName);
+            }
+            return result != 0 ? result : sensorId.compareTo(o.sensorId);
+        }
+    }
+}
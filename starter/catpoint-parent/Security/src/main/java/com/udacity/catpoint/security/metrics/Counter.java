@@ -0,0 +1,24 @@
+package com.udacity.catpoint.security.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Count of events, cheap to increment from many threads at once.
+ */
+public class Counter implements CounterMXBean {
+
+    private final LongAdder count = new LongAdder();
+
+    public void increment() {
+        count.increment();
+    }
+
+    public void add(long n) {
+        count.add(n);
+    }
+
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+}
@@ -0,0 +1,5 @@
+package com.udacity.catpoint.security.metrics;
+
+public interface CounterMXBean {
+    long getCount();
+}
@@ -0,0 +1,20 @@
+package com.udacity.catpoint.security.metrics;
+
+import java.util.function.DoubleSupplier;
+
+/**
+ * Value computed from other state whenever it is read, such as a ratio of two counters.
+ */
+public class Gauge implements GaugeMXBean {
+
+    private final DoubleSupplier value;
+
+    public Gauge(DoubleSupplier value) {
+        this.value = value;
+    }
+
+    @Override
+    public double getValue() {
+        return value.getAsDouble();
+    }
+}
@@ -0,0 +1,5 @@
+package com.udacity.catpoint.security.metrics;
+
+public interface GaugeMXBean {
+    double getValue();
+}
@@ -0,0 +1,16 @@
+package com.udacity.catpoint.security.metrics;
+
+/**
+ * Latency summary published over JMX. All times are in microseconds.
+ */
+public interface LatencyHistogramMXBean {
+    long getCount();
+
+    double getMeanMicros();
+
+    double getMedianMicros();
+
+    double get99thPercentileMicros();
+
+    double getMaxMicros();
+}
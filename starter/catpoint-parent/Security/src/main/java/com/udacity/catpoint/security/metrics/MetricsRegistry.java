@@ -0,0 +1,107 @@
+package com.udacity.catpoint.security.metrics;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Named metrics shared across the application. Asking for a metric by name returns the existing
+ * one if there is one, so the classes that update a metric and the code that reads it only need to
+ * agree on the name.
+ *
+ * Once {@link #registerMBeans(String)} has been called, every metric, including those created
+ * later, is published as an MXBean named domain:type=[metric type],name=[metric name], where
+ * JConsole, VisualVM or any other JMX client can read it.
+ */
+public class MetricsRegistry {
+
+    private static final MetricsRegistry DEFAULT = new MetricsRegistry();
+
+    private final ConcurrentMap<String, Object> metrics = new ConcurrentHashMap<>();
+    private volatile String jmxDomain;
+
+    /**
+     * @return the registry used by the security service, the repositories and the image services
+     */
+    public static MetricsRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    public Counter counter(String name) {
+        return metric(name, Counter.class, Counter::new);
+    }
+
+    public RateMeter rateMeter(String name) {
+        return metric(name, RateMeter.class, RateMeter::new);
+    }
+
+    public LatencyHistogram histogram(String name) {
+        return metric(name, LatencyHistogram.class, LatencyHistogram::new);
+    }
+
+    /**
+     * Registers a gauge. If a gauge with that name already exists it is kept, and the provided value ignored.
+     */
+    public Gauge gauge(String name, DoubleSupplier value) {
+        return metric(name, Gauge.class, () -> new Gauge(value));
+    }
+
+    /**
+     * @return every metric by name, in name order
+     */
+    public SortedMap<String, Object> getMetrics() {
+        return Collections.unmodifiableSortedMap(new TreeMap<>(metrics));
+    }
+
+    /**
+     * Publishes every metric, now and in the future, to the platform MBean server.
+     * @param domain JMX domain to publish under, for example com.udacity.catpoint
+     */
+    public synchronized void registerMBeans(String domain) {
+        jmxDomain = domain;
+        metrics.forEach(this::register);
+    }
+
+    private <T> T metric(String name, Class<T> type, Supplier<T> factory) {
+        Object metric = metrics.get(name);
+        if(metric == null) {
+            Object created = factory.get();
+            metric = metrics.putIfAbsent(name, created);
+            if(metric == null) {
+                metric = created;
+                if(jmxDomain != null) {
+                    register(name, created);
+                }
+            }
+        }
+        if(!type.isInstance(metric)) {
+            throw new IllegalArgumentException(name + " is a " + metric.getClass().getSimpleName() + ", not a " + type.getSimpleName());
+        }
+        return type.cast(metric);
+    }
+
+    private synchronized void register(String name, Object metric) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName objectName = new ObjectName(jmxDomain + ":type=" + metric.getClass().getSimpleName() + ",name=" + ObjectName.quote(name));
+            try {
+                server.registerMBean(metric, objectName);
+            } catch (InstanceAlreadyExistsException e) {
+                //left over from an earlier registry in the same JVM
+                server.unregisterMBean(objectName);
+                server.registerMBean(metric, objectName);
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("Unable to publish metric " + name, e);
+        }
+    }
+}
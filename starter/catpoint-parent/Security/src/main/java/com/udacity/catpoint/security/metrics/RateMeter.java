@@ -0,0 +1,65 @@
+package com.udacity.catpoint.security.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures how often something happens. Events are counted in one-second slots of a short ring,
+ * and the rate is the average over the completed seconds in the ring. Marks that race with a slot
+ * being reused for a new second may be lost, so the rate is approximate; the total count is exact.
+ */
+public class RateMeter implements RateMeterMXBean {
+
+    private static final int WINDOW_SECONDS = 10;
+
+    private final AtomicLongArray counts = new AtomicLongArray(WINDOW_SECONDS);
+    private final AtomicLongArray slotSeconds = new AtomicLongArray(WINDOW_SECONDS);
+    private final LongAdder total = new LongAdder();
+
+    public RateMeter() {
+        for(int i = 0; i < WINDOW_SECONDS; i++) {
+            slotSeconds.set(i, Long.MIN_VALUE);
+        }
+    }
+
+    public void mark() {
+        mark(1);
+    }
+
+    public void mark(long events) {
+        total.add(events);
+        long second = currentSecond();
+        int slot = (int) Math.floorMod(second, (long) WINDOW_SECONDS);
+        long slotSecond = slotSeconds.get(slot);
+        if(slotSecond != second && slotSeconds.compareAndSet(slot, slotSecond, second)) {
+            counts.set(slot, 0);
+        }
+        counts.addAndGet(slot, events);
+    }
+
+    @Override
+    public long getCount() {
+        return total.sum();
+    }
+
+    /**
+     * @return average events per second over the last few completed seconds
+     */
+    @Override
+    public double getRatePerSecond() {
+        long second = currentSecond();
+        long events = 0;
+        for(int i = 0; i < WINDOW_SECONDS; i++) {
+            long slotSecond = slotSeconds.get(i);
+            if(slotSecond != Long.MIN_VALUE && slotSecond < second && slotSecond >= second - (WINDOW_SECONDS - 1)) {
+                events += counts.get(i);
+            }
+        }
+        return (double) events / (WINDOW_SECONDS - 1);
+    }
+
+    private static long currentSecond() {
+        return TimeUnit.NANOSECONDS.toSeconds(System.nanoTime());
+    }
+}
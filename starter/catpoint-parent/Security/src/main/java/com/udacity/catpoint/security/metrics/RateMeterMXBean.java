@@ -0,0 +1,7 @@
+package com.udacity.catpoint.security.metrics;
+
+public interface RateMeterMXBean {
+    long getCount();
+
+    double getRatePerSecond();
+}
@@ -0,0 +1,80 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.security.data.SecurityRepository;
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorType;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Keeps count of the active sensors, overall and per sensor type, so the service can tell whether
+ * any sensor is active without scanning the repository. The index is built from the repository the
+ * first time it is used and then kept current by the service as sensors change.
+ */
+class ActiveSensorIndex {
+
+    private final SecurityRepository securityRepository;
+    //type each active sensor was counted under, so a later type change can't skew the counts
+    private final Map<UUID, SensorType> activeSensors = new HashMap<>();
+    private final int[] activeByType = new int[SensorType.values().length];
+    private boolean loaded;
+
+    ActiveSensorIndex(SecurityRepository securityRepository) {
+        this.securityRepository = securityRepository;
+    }
+
+    /**
+     * Brings the index in line with the current state of the provided sensor.
+     */
+    void update(Sensor sensor) {
+        load();
+        if(Boolean.TRUE.equals(sensor.getActive())) {
+            SensorType previous = activeSensors.put(sensor.getSensorId(), sensor.getSensorType());
+            if(previous != sensor.getSensorType()) {
+                decrement(previous);
+                increment(sensor.getSensorType());
+            }
+        } else {
+            remove(sensor);
+        }
+    }
+
+    void remove(Sensor sensor) {
+        load();
+        if(activeSensors.containsKey(sensor.getSensorId())) {
+            decrement(activeSensors.remove(sensor.getSensorId()));
+        }
+    }
+
+    int count() {
+        load();
+        return activeSensors.size();
+    }
+
+    int count(SensorType sensorType) {
+        load();
+        return activeByType[sensorType.ordinal()];
+    }
+
+    private void load() {
+        if(loaded) {
+            return;
+        }
+        loaded = true;
+        securityRepository.getSensors().forEach(this::update);
+    }
+
+    private void increment(SensorType sensorType) {
+        if(sensorType != null) {
+            activeByType[sensorType.ordinal()]++;
+        }
+    }
+
+    private void decrement(SensorType sensorType) {
+        if(sensorType != null) {
+            activeByType[sensorType.ordinal()]--;
+        }
+    }
+}
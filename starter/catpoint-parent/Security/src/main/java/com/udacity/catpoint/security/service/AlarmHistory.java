@@ -0,0 +1,262 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.ArmingStatus;
+
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Fixed-size history of alarm status changes, arming status changes and sensor readings, for
+ * reviewing what happened around an incident. Once the buffer is full the oldest entries are
+ * overwritten.
+ *
+ * Entries are stored as primitive columns (timestamp, kind, status ordinal, sensor id) in buffers
+ * allocated once up front, either on the heap or off-heap, so recording an entry never allocates.
+ * Queries don't take the writer's lock: they read entries newest first and stop as soon as the
+ * writer may have overwritten what they are reading.
+ */
+public class AlarmHistory {
+
+    public enum Kind {
+        ALARM_STATUS, ARMING_STATUS, SENSOR
+    }
+
+    private static final Kind[] KINDS = Kind.values();
+    private static final AlarmStatus[] ALARM_STATUSES = AlarmStatus.values();
+    private static final ArmingStatus[] ARMING_STATUSES = ArmingStatus.values();
+
+    private final int capacity;
+    private final LongSupplier clock;
+    private final LongBuffer times;
+    private final ByteBuffer kinds;
+    private final ByteBuffer values;
+    private final LongBuffer sensorIdHigh;
+    private final LongBuffer sensorIdLow;
+
+    //total entries ever started and finished. The writer bumps started before touching a slot and
+    //recorded once the entry is complete, so readers can tell complete entries from overwritten ones
+    private volatile long started;
+    private volatile long recorded;
+
+    /**
+     * @param capacity Number of entries kept
+     * @param offHeap True to keep the entries in direct buffers outside the Java heap
+     */
+    public AlarmHistory(int capacity, boolean offHeap) {
+        this(capacity, offHeap, System::currentTimeMillis);
+    }
+
+    /**
+     * @param clock Source of entry timestamps, in milliseconds since the epoch
+     */
+    public AlarmHistory(int capacity, boolean offHeap, LongSupplier clock) {
+        if(capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.clock = clock;
+        this.times = allocate(capacity * Long.BYTES, offHeap).asLongBuffer();
+        this.kinds = allocate(capacity, offHeap);
+        this.values = allocate(capacity, offHeap);
+        this.sensorIdHigh = allocate(capacity * Long.BYTES, offHeap).asLongBuffer();
+        this.sensorIdLow = allocate(capacity * Long.BYTES, offHeap).asLongBuffer();
+    }
+
+    public void recordAlarmStatus(AlarmStatus alarmStatus) {
+        if(alarmStatus != null) {
+            record(Kind.ALARM_STATUS, alarmStatus.ordinal(), 0, 0);
+        }
+    }
+
+    public void recordArmingStatus(ArmingStatus armingStatus) {
+        if(armingStatus != null) {
+            record(Kind.ARMING_STATUS, armingStatus.ordinal(), 0, 0);
+        }
+    }
+
+    public void recordSensor(UUID sensorId, boolean active) {
+        if(sensorId != null) {
+            record(Kind.SENSOR, active ? 1 : 0, sensorId.getMostSignificantBits(), sensorId.getLeastSignificantBits());
+        }
+    }
+
+    private synchronized void record(Kind kind, int value, long idHigh, long idLow) {
+        long n = recorded;
+        started = n + 1;
+        VarHandle.storeStoreFence();
+        int slot = (int) (n % capacity);
+        times.put(slot, clock.getAsLong());
+        kinds.put(slot, (byte) kind.ordinal());
+        values.put(slot, (byte) value);
+        sensorIdHigh.put(slot, idHigh);
+        sensorIdLow.put(slot, idLow);
+        recorded = n + 1;
+    }
+
+    /**
+     * @return the entries recorded within the provided window, oldest first
+     */
+    public List<Entry> getEntries(Duration window) {
+        List<Entry> entries = new ArrayList<>();
+        scan(window, entries::add);
+        Collections.reverse(entries);
+        return entries;
+    }
+
+    /**
+     * @return the alarm status changes recorded within the provided window, oldest first
+     */
+    public List<Entry> getAlarmTransitions(Duration window) {
+        List<Entry> entries = new ArrayList<>();
+        scan(window, e -> {
+            if(e.kind == Kind.ALARM_STATUS) {
+                entries.add(e);
+            }
+        });
+        Collections.reverse(entries);
+        return entries;
+    }
+
+    /**
+     * @param limit Maximum number of sensors returned
+     * @return the sensors activated most often within the provided window, most active first
+     */
+    public List<SensorActivity> getMostActiveSensors(Duration window, int limit) {
+        Map<UUID, SensorActivity> activity = new HashMap<>();
+        scan(window, e -> {
+            if(e.kind == Kind.SENSOR && e.active) {
+                activity.computeIfAbsent(e.sensorId, SensorActivity::new).activations++;
+            }
+        });
+        List<SensorActivity> mostActive = new ArrayList<>(activity.values());
+        mostActive.sort(Comparator.comparingInt(SensorActivity::getActivations).reversed());
+        return mostActive.subList(0, Math.min(limit, mostActive.size()));
+    }
+
+    /**
+     * @return number of entries currently held
+     */
+    public int size() {
+        return (int) Math.min(recorded, capacity);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Reads entries newest first until reaching one older than the window, or one the writer may
+     * have overwritten while it was being read.
+     */
+    private void scan(Duration window, Consumer<Entry> consumer) {
+        long since = clock.getAsLong() - window.toMillis();
+        long newest = recorded - 1;
+        for(long n = newest; n >= 0 && n > newest - capacity; n--) {
+            int slot = (int) (n % capacity);
+            long time = times.get(slot);
+            Kind kind = KINDS[kinds.get(slot)];
+            int value = values.get(slot);
+            long idHigh = sensorIdHigh.get(slot);
+            long idLow = sensorIdLow.get(slot);
+            //the writer overwrites the slot of entry n while recording entry n + capacity
+            VarHandle.loadLoadFence();
+            if(started - capacity > n) {
+                //lapped by the writer, so this and every older slot may hold newer data
+                return;
+            }
+            if(time < since) {
+                return;
+            }
+            consumer.accept(new Entry(time, kind, value, idHigh, idLow));
+        }
+    }
+
+    private static ByteBuffer allocate(int bytes, boolean offHeap) {
+        return offHeap ? ByteBuffer.allocateDirect(bytes) : ByteBuffer.allocate(bytes);
+    }
+
+    /**
+     * One recorded change.
+     */
+    public static class Entry {
+        private final long timeMillis;
+        private final Kind kind;
+        private final int value;
+        private final UUID sensorId;
+        private final boolean active;
+
+        private Entry(long timeMillis, Kind kind, int value, long idHigh, long idLow) {
+            this.timeMillis = timeMillis;
+            this.kind = kind;
+            this.value = value;
+            this.sensorId = kind == Kind.SENSOR ? new UUID(idHigh, idLow) : null;
+            this.active = kind == Kind.SENSOR && value == 1;
+        }
+
+        public Instant getTime() {
+            return Instant.ofEpochMilli(timeMillis);
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        /**
+         * @return the new alarm status, or null if this entry is not an alarm status change
+         */
+        public AlarmStatus getAlarmStatus() {
+            return kind == Kind.ALARM_STATUS ? ALARM_STATUSES[value] : null;
+        }
+
+        /**
+         * @return the new arming status, or null if this entry is not an arming status change
+         */
+        public ArmingStatus getArmingStatus() {
+            return kind == Kind.ARMING_STATUS ? ARMING_STATUSES[value] : null;
+        }
+
+        /**
+         * @return the sensor that reported, or null if this entry is not a sensor reading
+         */
+        public UUID getSensorId() {
+            return sensorId;
+        }
+
+        public boolean isActive() {
+            return active;
+        }
+    }
+
+    /**
+     * Number of times a sensor was activated.
+     */
+    public static class SensorActivity {
+        private final UUID sensorId;
+        private int activations;
+
+        private SensorActivity(UUID sensorId) {
+            this.sensorId = sensorId;
+        }
+
+        public UUID getSensorId() {
+            return sensorId;
+        }
+
+        public int getActivations() {
+            return activations;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.image.camera.FrameChangeDetector;
+import com.udacity.catpoint.image.camera.FrameSource;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Feeds a continuous stream of camera frames to the classifier. A reader thread pulls frames from
+ * the source and drops those the change detector considers unchanged. Changed frames go into a
+ * bounded queue drained by a classifier thread. If the classifier falls behind and the queue fills
+ * up, the oldest waiting frame is dropped, so the classifier always works on recent frames and
+ * memory use stays bounded.
+ *
+ * The classifier is usually {@link SecurityService#processImage(BufferedImage)}, or
+ * {@link SecurityEventLoop#submitImage(BufferedImage)} when the service is shared with other threads.
+ */
+public class CameraFramePipeline implements AutoCloseable {
+
+    private final FrameSource source;
+    private final FrameChangeDetector changeDetector;
+    private final BlockingQueue<BufferedImage> queue;
+    private final Consumer<BufferedImage> classifier;
+    private final Thread reader;
+    private final Thread classifierThread;
+    private volatile boolean running = true;
+
+    private final LongAdder framesRead = new LongAdder();
+    private final LongAdder framesUnchanged = new LongAdder();
+    private final LongAdder framesDropped = new LongAdder();
+    private final LongAdder framesClassified = new LongAdder();
+
+    /**
+     * @param source Camera frames
+     * @param changeDetector Decides which frames are worth classifying
+     * @param queueCapacity Maximum number of changed frames waiting for the classifier
+     * @param classifier Receives each frame that should be classified
+     */
+    public CameraFramePipeline(FrameSource source, FrameChangeDetector changeDetector, int queueCapacity, Consumer<BufferedImage> classifier) {
+        this.source = source;
+        this.changeDetector = changeDetector;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.classifier = classifier;
+        this.reader = new Thread(this::read, "catpoint-camera-reader");
+        this.classifierThread = new Thread(this::classify, "catpoint-camera-classifier");
+        reader.setDaemon(true);
+        classifierThread.setDaemon(true);
+    }
+
+    public void start() {
+        reader.start();
+        classifierThread.start();
+    }
+
+    /**
+     * Stops reading frames, closes the source and waits for both pipeline threads to exit. Frames
+     * still waiting for the classifier are discarded.
+     */
+    @Override
+    public void close() throws IOException, InterruptedException {
+        running = false;
+        source.close();
+        reader.interrupt();
+        classifierThread.interrupt();
+        reader.join();
+        classifierThread.join();
+    }
+
+    /**
+     * Waits until the source is exhausted and every queued frame has been classified.
+     * @return false if that didn't happen within the timeout
+     */
+    public boolean awaitCompletion(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        reader.join(Math.max(1, unit.toMillis(timeout)));
+        long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+        if(reader.isAlive() || remaining <= 0) {
+            return false;
+        }
+        classifierThread.join(remaining);
+        return !classifierThread.isAlive();
+    }
+
+    public long getFramesRead() {
+        return framesRead.sum();
+    }
+
+    public long getFramesUnchanged() {
+        return framesUnchanged.sum();
+    }
+
+    public long getFramesDropped() {
+        return framesDropped.sum();
+    }
+
+    public long getFramesClassified() {
+        return framesClassified.sum();
+    }
+
+    private void read() {
+        try {
+            BufferedImage frame;
+            while(running && (frame = source.nextFrame()) != null) {
+                framesRead.increment();
+                if(!changeDetector.hasChanged(frame)) {
+                    framesUnchanged.increment();
+                    continue;
+                }
+                //make room by dropping the stalest frame rather than blocking the camera
+                while(!queue.offer(frame)) {
+                    if(queue.poll() != null) {
+                        framesDropped.increment();
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException ioe) {
+            throw new IllegalStateException("Camera frame source failed", ioe);
+        } finally {
+            running = false;
+        }
+    }
+
+    private void classify() {
+        try {
+            while(running || !queue.isEmpty()) {
+                BufferedImage frame = queue.poll(100, TimeUnit.MILLISECONDS);
+                if(frame == null) {
+                    continue;
+                }
+                try {
+                    classifier.accept(frame);
+                    framesClassified.increment();
+                } catch (RuntimeException e) {
+                    //one bad frame shouldn't stop the camera
+                    Thread t = Thread.currentThread();
+                    t.getUncaughtExceptionHandler().uncaughtException(t, e);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.image.service.ImageServiceInterface;
+import com.udacity.catpoint.security.metrics.Counter;
+import com.udacity.catpoint.security.metrics.LatencyHistogram;
+import com.udacity.catpoint.security.metrics.MetricsRegistry;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Image service decorator that measures the wrapped service. It records classification latency
+ * and counts scans, cats found and failures, with a gauge for the share of scans that found a cat.
+ * The metrics are named after the provided prefix, for example imageService.classification.
+ */
+public class InstrumentedImageService implements ImageServiceInterface {
+
+    private final ImageServiceInterface delegate;
+    private final LatencyHistogram classificationLatency;
+    private final Counter scans;
+    private final Counter cats;
+    private final Counter failures;
+
+    public InstrumentedImageService(ImageServiceInterface delegate, MetricsRegistry metrics, String prefix) {
+        this.delegate = delegate;
+        this.classificationLatency = metrics.histogram(prefix + ".classification");
+        this.scans = metrics.counter(prefix + ".scans");
+        this.cats = metrics.counter(prefix + ".cats");
+        this.failures = metrics.counter(prefix + ".failures");
+        metrics.gauge(prefix + ".catHitRate", () -> {
+            long scanned = scans.getCount();
+            return scanned == 0 ? 0 : (double) cats.getCount() / scanned;
+        });
+    }
+
+    @Override
+    public boolean imageContainsCat(BufferedImage image, float confidenceThreshhold) {
+        long start = System.nanoTime();
+        boolean containsCat;
+        try {
+            containsCat = delegate.imageContainsCat(image, confidenceThreshhold);
+        } catch (RuntimeException e) {
+            failures.increment();
+            throw e;
+        } finally {
+            classificationLatency.recordSince(start);
+        }
+        scans.increment();
+        if(containsCat) {
+            cats.increment();
+        }
+        return containsCat;
+    }
+}
@@ -0,0 +1,366 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.image.service.ImageServiceInterface;
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.data.CompactSecurityRepositoryImpl;
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.metrics.MetricsRegistry;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Hosts many independent premises, each with its own {@link SecurityService}, on a fixed set of
+ * partitions. Every premises is pinned to one partition by the hash of its id, and each partition
+ * is owned by a single worker thread that applies that partition's events in submission order,
+ * the same way {@link SecurityEventLoop} does for one premises. Premises never share state, and
+ * each partition records its metrics in its own {@link MetricsRegistry}, so partitions don't
+ * contend with each other and throughput grows with the number of cores.
+ *
+ * Premises are created by the factory the first time an event arrives for them. Sensor events for
+ * the same premises that arrive close together are applied as one batch.
+ */
+public class PremisesEngine implements AutoCloseable {
+
+    //upper bound on the events a worker takes off its queue at once
+    private static final int MAX_BATCH = 4096;
+    private static final int PREMISES_HISTORY_CAPACITY = 256;
+
+    private final Partition[] partitions;
+    private final BiFunction<String, MetricsRegistry, SecurityService> premisesFactory;
+
+    /**
+     * @param partitionCount Number of partitions, and worker threads. Usually the number of cores.
+     * @param premisesFactory Creates the service for a premises id, recording metrics in the provided partition registry
+     */
+    public PremisesEngine(int partitionCount, BiFunction<String, MetricsRegistry, SecurityService> premisesFactory) {
+        if(partitionCount <= 0) {
+            throw new IllegalArgumentException("Partition count must be positive: " + partitionCount);
+        }
+        this.premisesFactory = premisesFactory;
+        this.partitions = new Partition[partitionCount];
+        for(int i = 0; i < partitionCount; i++) {
+            partitions[i] = new Partition(i);
+        }
+    }
+
+    /**
+     * @return a factory for premises kept in memory, with a short alarm history, sharing the provided image service
+     */
+    public static BiFunction<String, MetricsRegistry, SecurityService> inMemoryPremises(ImageServiceInterface imageService) {
+        return (premisesId, metrics) -> new SecurityService(new CompactSecurityRepositoryImpl(), imageService,
+                new AlarmHistory(PREMISES_HISTORY_CAPACITY, false), metrics);
+    }
+
+    public int getPartitionCount() {
+        return partitions.length;
+    }
+
+    /**
+     * @return the partition the premises is pinned to
+     */
+    public int partitionOf(String premisesId) {
+        int h = premisesId.hashCode() * 0x9E3779B9;
+        return Math.floorMod(h ^ (h >>> 16), partitions.length);
+    }
+
+    /**
+     * Queues a change to the activation status of a sensor. The sensor is looked up by id on the
+     * worker thread, so callers never share sensor objects with the engine.
+     */
+    public void submitSensorEvent(String premisesId, UUID sensorId, boolean active) {
+        partition(premisesId).enqueue(new Task(premisesId, new SensorReading(sensorId, active)));
+    }
+
+    public void submitArmingStatus(String premisesId, ArmingStatus armingStatus) {
+        submitAction(premisesId, service -> service.setArmingStatus(armingStatus));
+    }
+
+    /**
+     * Queues the result of an image scan made off the worker thread, see {@link SecurityService#scanImage}.
+     */
+    public void submitImageResult(String premisesId, boolean cat) {
+        submitAction(premisesId, service -> service.processImageResult(cat));
+    }
+
+    /**
+     * Adds the sensor to the premises. The sensor should not be changed by the caller afterwards.
+     */
+    public void addSensor(String premisesId, Sensor sensor) {
+        submitAction(premisesId, service -> service.addSensor(sensor));
+    }
+
+    /**
+     * Runs the provided function against the premises on its worker thread.
+     * @return a future completed with the result of the function
+     */
+    public <T> CompletableFuture<T> submit(String premisesId, Function<SecurityService, T> function) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        submitAction(premisesId, service -> {
+            try {
+                result.complete(function.apply(service));
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Drops the premises and its state.
+     * @return a future completed with true if the premises existed
+     */
+    public CompletableFuture<Boolean> removePremises(String premisesId) {
+        Partition partition = partition(premisesId);
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        partition.enqueue(new Task(premisesId, (Runnable) () -> result.complete(partition.remove(premisesId))));
+        return result;
+    }
+
+    /**
+     * @return a future completed once every event submitted before this call has been applied
+     */
+    public CompletableFuture<Void> drain() {
+        CompletableFuture<?>[] drained = new CompletableFuture<?>[partitions.length];
+        for(int i = 0; i < partitions.length; i++) {
+            CompletableFuture<Void> done = new CompletableFuture<>();
+            partitions[i].enqueue(new Task(null, (Runnable) () -> done.complete(null)));
+            drained[i] = done;
+        }
+        return CompletableFuture.allOf(drained);
+    }
+
+    /**
+     * @return total sensor events applied across all partitions
+     */
+    public long getEventCount() {
+        long events = 0;
+        for(Partition partition : partitions) {
+            events += partition.eventCount;
+        }
+        return events;
+    }
+
+    public int getPremisesCount() {
+        int count = 0;
+        for(Partition partition : partitions) {
+            count += partition.premisesCount;
+        }
+        return count;
+    }
+
+    /**
+     * @return the registry the services of one partition record their metrics in
+     */
+    public MetricsRegistry getPartitionMetrics(int partition) {
+        return partitions[partition].metrics;
+    }
+
+    /**
+     * Stops accepting new events, applies everything already queued and waits for the workers to exit.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        for(Partition partition : partitions) {
+            partition.stop();
+        }
+        for(Partition partition : partitions) {
+            partition.worker.join();
+        }
+    }
+
+    private void submitAction(String premisesId, Consumer<SecurityService> action) {
+        partition(premisesId).enqueue(new Task(premisesId, action));
+    }
+
+    private Partition partition(String premisesId) {
+        return partitions[partitionOf(premisesId)];
+    }
+
+    /**
+     * A sensor event as submitted, before the sensor has been looked up.
+     */
+    private static class SensorReading {
+        private final UUID sensorId;
+        private final boolean active;
+
+        private SensorReading(UUID sensorId, boolean active) {
+            this.sensorId = sensorId;
+            this.active = active;
+        }
+    }
+
+    /**
+     * An event for one premises: a {@link SensorReading}, a Consumer of its SecurityService, or a
+     * Runnable for the partition itself.
+     */
+    private static class Task {
+        private final String premisesId;
+        private final Object action;
+
+        private Task(String premisesId, Object action) {
+            this.premisesId = premisesId;
+            this.action = action;
+        }
+    }
+
+    private class Partition {
+        private final Queue<Task> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean sleeping = new AtomicBoolean();
+        private final MetricsRegistry metrics = new MetricsRegistry();
+        private final Thread worker;
+        private volatile boolean running = true;
+
+        //only touched by the worker
+        private final Map<String, SecurityService> premises = new HashMap<>();
+        private final Map<String, List<SensorReading>> pendingSensorEvents = new LinkedHashMap<>();
+
+        //written only by the worker, read by anyone
+        private volatile long eventCount;
+        private volatile int premisesCount;
+
+        private Partition(int index) {
+            this.worker = new Thread(this::run, "catpoint-premises-" + index);
+            worker.setDaemon(true);
+            worker.start();
+        }
+
+        private void enqueue(Task task) {
+            if(!running) {
+                throw new IllegalStateException("Premises engine is closed");
+            }
+            queue.offer(task);
+            //stopped while offering: take the task back, unless the worker's last look already found it
+            if(!running && queue.remove(task)) {
+                throw new IllegalStateException("Premises engine is closed");
+            }
+            if(sleeping.get() && sleeping.compareAndSet(true, false)) {
+                LockSupport.unpark(worker);
+            }
+        }
+
+        private void stop() {
+            running = false;
+            LockSupport.unpark(worker);
+        }
+
+        private void run() {
+            List<Task> batch = new ArrayList<>();
+            while(true) {
+                Task task;
+                while(batch.size() < MAX_BATCH && (task = queue.poll()) != null) {
+                    batch.add(task);
+                }
+                if(!batch.isEmpty()) {
+                    apply(batch);
+                    batch.clear();
+                } else if(!running) {
+                    //a producer may have offered just before seeing the partition stopped, so look once more
+                    if(queue.isEmpty()) {
+                        return;
+                    }
+                } else {
+                    //publish that we're going to sleep, then look again so a racing producer can't be missed
+                    sleeping.set(true);
+                    if(queue.isEmpty() && running) {
+                        LockSupport.park(this);
+                    }
+                    sleeping.set(false);
+                }
+            }
+        }
+
+        /**
+         * Collects sensor events per premises and applies each premises' collected events just
+         * before anything else happens to it, so every premises sees its events in order.
+         */
+        @SuppressWarnings("unchecked")
+        private void apply(List<Task> batch) {
+            for(Task task : batch) {
+                if(task.action instanceof SensorReading) {
+                    pendingSensorEvents.computeIfAbsent(task.premisesId, id -> new ArrayList<>()).add((SensorReading) task.action);
+                    continue;
+                }
+                try {
+                    if(task.action instanceof Runnable) {
+                        //partition-wide tasks wait for every earlier event
+                        applyPendingSensorEvents();
+                        ((Runnable) task.action).run();
+                    } else {
+                        applySensorEvents(task.premisesId, pendingSensorEvents.remove(task.premisesId));
+                        ((Consumer<SecurityService>) task.action).accept(premises(task.premisesId));
+                    }
+                } catch (RuntimeException e) {
+                    report(e);
+                }
+            }
+            applyPendingSensorEvents();
+        }
+
+        private void applyPendingSensorEvents() {
+            pendingSensorEvents.forEach(this::applySensorEvents);
+            pendingSensorEvents.clear();
+        }
+
+        private void applySensorEvents(String premisesId, List<SensorReading> readings) {
+            if(readings == null) {
+                return;
+            }
+            try {
+                SecurityService service = premises(premisesId);
+                List<SensorEvent> events = new ArrayList<>(readings.size());
+                for(SensorReading reading : readings) {
+                    Sensor sensor = service.getSensor(reading.sensorId);
+                    if(sensor == null) {
+                        //only this reading is bad, the rest of the burst still applies
+                        report(new IllegalArgumentException("Premises " + premisesId + " has no sensor " + reading.sensorId));
+                        continue;
+                    }
+                    events.add(new SensorEvent(sensor, reading.active));
+                }
+                if(events.size() == 1) {
+                    SensorEvent event = events.get(0);
+                    service.changeSensorActivationStatus(event.getSensor(), event.isActive());
+                } else {
+                    service.processSensorEvents(events);
+                }
+                eventCount += events.size();
+            } catch (RuntimeException e) {
+                report(e);
+            }
+        }
+
+        private SecurityService premises(String premisesId) {
+            SecurityService service = premises.get(premisesId);
+            if(service == null) {
+                service = premisesFactory.apply(premisesId, metrics);
+                premises.put(premisesId, service);
+                premisesCount = premises.size();
+            }
+            return service;
+        }
+
+        private boolean remove(String premisesId) {
+            pendingSensorEvents.remove(premisesId);
+            boolean removed = premises.remove(premisesId) != null;
+            premisesCount = premises.size();
+            return removed;
+        }
+
+        private void report(RuntimeException e) {
+            worker.getUncaughtExceptionHandler().uncaughtException(worker, e);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.data.Sensor;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Single-writer front end for a {@link SecurityService}. Any number of producer threads (sensor
+ * gateways, camera scanners, the UI) submit changes to a lock-free queue, and one owner thread
+ * applies them to the service in submission order. Because only the owner thread ever touches the
+ * service, the alarm state machine needs no locking and no transitions are lost.
+ *
+ * Runs of consecutive sensor events are handed to the service as a single batch, so a burst of
+ * readings costs one repository write and one round of listener notifications.
+ */
+public class SecurityEventLoop implements AutoCloseable {
+
+    //upper bound on a single batch, so a never-ending stream of readings still gets applied
+    private static final int MAX_SENSOR_BATCH = 1024;
+
+    private final SecurityService securityService;
+    private final Queue<Object> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean sleeping = new AtomicBoolean();
+    private final Thread owner;
+    private volatile boolean running = true;
+
+    public SecurityEventLoop(SecurityService securityService) {
+        this.securityService = securityService;
+        this.owner = new Thread(this::run, "catpoint-security-loop");
+        owner.setDaemon(true);
+        owner.start();
+    }
+
+    /**
+     * Queues a change to the activation status of the provided sensor.
+     */
+    public void submitSensorEvent(Sensor sensor, boolean active) {
+        enqueue(new SensorEvent(sensor, active));
+    }
+
+    /**
+     * Queues a change to the arming status of the system.
+     */
+    public void submitArmingStatus(ArmingStatus armingStatus) {
+        enqueue((Consumer<SecurityService>) service -> service.setArmingStatus(armingStatus));
+    }
+
+    /**
+     * Scans the image on the calling thread, then queues the result. The owner thread never
+     * waits on the image service.
+     */
+    public void submitImage(BufferedImage image) {
+        boolean cat = securityService.scanImage(image);
+        enqueue((Consumer<SecurityService>) service -> service.processImageResult(cat));
+    }
+
+    /**
+     * Runs the provided function on the owner thread, for reads or changes not covered by the
+     * other submit methods.
+     * @return a future completed with the result of the function
+     */
+    public <T> CompletableFuture<T> submit(Function<SecurityService, T> function) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        enqueue((Consumer<SecurityService>) service -> {
+            try {
+                result.complete(function.apply(service));
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Stops accepting new work, applies everything already queued and waits for the owner thread to exit.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(owner);
+        owner.join();
+    }
+
+    private void enqueue(Object item) {
+        if(!running) {
+            throw new IllegalStateException("Security event loop is closed");
+        }
+        queue.offer(item);
+        //closed while offering: take the item back, unless the owner's last look already found it
+        if(!running && queue.remove(item)) {
+            throw new IllegalStateException("Security event loop is closed");
+        }
+        if(sleeping.get() && sleeping.compareAndSet(true, false)) {
+            LockSupport.unpark(owner);
+        }
+    }
+
+    private void run() {
+        List<SensorEvent> sensorEvents = new ArrayList<>();
+        while(true) {
+            Object item = queue.poll();
+            if(item instanceof SensorEvent) {
+                sensorEvents.add((SensorEvent) item);
+                if(sensorEvents.size() >= MAX_SENSOR_BATCH) {
+                    applySensorEvents(sensorEvents);
+                }
+                continue;
+            }
+            applySensorEvents(sensorEvents);
+            if(item != null) {
+                apply(item);
+            } else if(!running) {
+                //a producer may have offered just before seeing the loop closed, so look once more
+                if(queue.isEmpty()) {
+                    return;
+                }
+            } else {
+                //publish that we're going to sleep, then look again so a racing producer can't be missed
+                sleeping.set(true);
+                if(queue.isEmpty() && running) {
+                    LockSupport.park(this);
+                }
+                sleeping.set(false);
+            }
+        }
+    }
+
+    private void applySensorEvents(List<SensorEvent> sensorEvents) {
+        if(sensorEvents.isEmpty()) {
+            return;
+        }
+        try {
+            if(sensorEvents.size() == 1) {
+                SensorEvent event = sensorEvents.get(0);
+                securityService.changeSensorActivationStatus(event.getSensor(), event.isActive());
+            } else {
+                securityService.processSensorEvents(sensorEvents);
+            }
+        } catch (RuntimeException e) {
+            report(e);
+        }
+        sensorEvents.clear();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void apply(Object item) {
+        try {
+            ((Consumer<SecurityService>) item).accept(securityService);
+        } catch (RuntimeException e) {
+            report(e);
+        }
+    }
+
+    private void report(RuntimeException e) {
+        owner.getUncaughtExceptionHandler().uncaughtException(owner, e);
+    }
+}
@@ -6,11 +6,28 @@ import com.udacity.catpoint.security.data.AlarmStatus;
 import com.udacity.catpoint.security.data.ArmingStatus;
 import com.udacity.catpoint.security.data.SecurityRepository;
 import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorType;
+import com.udacity.catpoint.security.metrics.Counter;
+import com.udacity.catpoint.security.metrics.LatencyHistogram;
+import com.udacity.catpoint.security.metrics.MetricsRegistry;
+import com.udacity.catpoint.security.metrics.RateMeter;
 
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentSkipListSet;
 import java.awt.image.BufferedImage;
-import java.util.HashSet;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 /**
  * Service that receives information about changes to the security system. Responsible for
@@ -18,18 +35,69 @@ import java.util.Set;
  *
  * This is the class that should contain most of the business logic for our system, and it is the
  * class you will be writing unit tests for.
+ *
+ * State changes are not synchronized. Callers on more than one thread should go through a
+ * {@link SecurityEventLoop}, which applies every change on a single owner thread.
+ *
+ * Alarm status transitions, the sensor event rate and the time spent notifying listeners are
+ * recorded in the default {@link MetricsRegistry}, or the one passed to the constructor, under
+ * names starting with securityService.
  */
 public class SecurityService {
 
+    private static final float CAT_CONFIDENCE_THRESHOLD = 50.0f;
+    private static final int DEFAULT_HISTORY_CAPACITY = 16_384;
+
     private ImageServiceInterface imageService;
     public SecurityRepository securityRepository;
-    private Set<StatusListener> statusListeners = new HashSet<>();
+    private Set<StatusListener> statusListeners = new CopyOnWriteArraySet<>();
+    private final ActiveSensorIndex activeSensors;
+    private final AlarmHistory history;
 
-    private boolean isCatDetected = false;
+    private volatile boolean isCatDetected = false;
+
+    //metrics. alarmTransitions is indexed by the ordinals of the old and new status
+    private final Counter[][] alarmTransitions;
+    private final RateMeter sensorEvents;
+    private final LatencyHistogram listenerDispatch;
+
+    //asynchronous image scanning. The scan executor is only created if an async scan is requested
+    private final AtomicReference<CompletableFuture<Boolean>> currentScan = new AtomicReference<>();
+    private Executor scanExecutor;
+    private Executor stateExecutor = Runnable::run;
+    private Duration scanTimeout = Duration.ofSeconds(10);
 
     public SecurityService(SecurityRepository securityRepository, ImageServiceInterface imageService) {
+        this(securityRepository, imageService, new AlarmHistory(DEFAULT_HISTORY_CAPACITY, false));
+    }
+
+    /**
+     * @param history Records status changes and sensor readings for later review
+     */
+    public SecurityService(SecurityRepository securityRepository, ImageServiceInterface imageService, AlarmHistory history) {
+        this(securityRepository, imageService, history, MetricsRegistry.getDefault());
+    }
+
+    /**
+     * @param metrics Registry to record metrics in, in place of the default one
+     */
+    public SecurityService(SecurityRepository securityRepository, ImageServiceInterface imageService, AlarmHistory history, MetricsRegistry metrics) {
         this.securityRepository = securityRepository;
         this.imageService = imageService;
+        this.activeSensors = new ActiveSensorIndex(securityRepository);
+        this.history = history;
+
+        AlarmStatus[] statuses = AlarmStatus.values();
+        alarmTransitions = new Counter[statuses.length][statuses.length];
+        for(AlarmStatus from : statuses) {
+            for(AlarmStatus to : statuses) {
+                if(from != to) {
+                    alarmTransitions[from.ordinal()][to.ordinal()] = metrics.counter("securityService.alarmTransition." + from + "." + to);
+                }
+            }
+        }
+        sensorEvents = metrics.rateMeter("securityService.sensorEvents");
+        listenerDispatch = metrics.histogram("securityService.listenerDispatch");
     }
 
     /**
@@ -50,7 +118,8 @@ public class SecurityService {
 
         }
         securityRepository.setArmingStatus(armingStatus);
-        statusListeners.forEach(sl -> sl.sensorStatusChanged());
+        history.recordArmingStatus(armingStatus);
+        dispatch(StatusListener::sensorStatusChanged);
     }
 
     /**
@@ -64,12 +133,12 @@ public class SecurityService {
         if(cat && getArmingStatus() == ArmingStatus.ARMED_HOME) {
             setAlarmStatus(AlarmStatus.ALARM);
         } else {
-            if(!cat && getSensors().stream().noneMatch(Sensor::getActive) ){
+            if(!cat && !hasActiveSensors()){
                 setAlarmStatus(AlarmStatus.NO_ALARM);
             }
         }
 
-        statusListeners.forEach(sl -> sl.catDetected(cat));
+        dispatch(sl -> sl.catDetected(cat));
     }
 
     /**
@@ -89,8 +158,29 @@ public class SecurityService {
      * @param status
      */
     public void setAlarmStatus(AlarmStatus status) {
+        recordTransition(securityRepository.getAlarmStatus(), status);
         securityRepository.setAlarmStatus(status);
-        statusListeners.forEach(sl -> sl.notify(status));
+        dispatch(sl -> sl.notify(status));
+    }
+
+    /**
+     * Delivers a notification to every listener, recording how long they took.
+     */
+    private void dispatch(Consumer<StatusListener> notification) {
+        long start = System.nanoTime();
+        statusListeners.forEach(notification);
+        listenerDispatch.recordSince(start);
+    }
+
+    private void recordTransition(AlarmStatus from, AlarmStatus to) {
+        if(from == to) {
+            return;
+        }
+        history.recordAlarmStatus(to);
+        //a repository may not know its status yet
+        if(from != null && to != null) {
+            alarmTransitions[from.ordinal()][to.ordinal()].increment();
+        }
     }
 
     /**
@@ -100,24 +190,38 @@ public class SecurityService {
         if(securityRepository.getArmingStatus() == ArmingStatus.DISARMED) {
             return; //no problem if the system is disarmed
         }
-        switch(securityRepository.getAlarmStatus()) {
-            case NO_ALARM -> setAlarmStatus(AlarmStatus.PENDING_ALARM);
-            case PENDING_ALARM -> setAlarmStatus(AlarmStatus.ALARM);
-            case ALARM -> setAlarmStatus(AlarmStatus.ALARM);
-            default -> throw new IllegalStateException("Unexpected value: " + securityRepository.getAlarmStatus());
-        }
+        setAlarmStatus(afterSensorActivated(securityRepository.getAlarmStatus()));
     }
 
     /**
      * Internal method for updating the alarm status when a sensor has been deactivated
      */
     private void handleSensorDeactivated() {
-        switch(securityRepository.getAlarmStatus()) {
-            case PENDING_ALARM -> setAlarmStatus(AlarmStatus.NO_ALARM);
-            case ALARM -> setAlarmStatus(AlarmStatus.PENDING_ALARM);
-            case NO_ALARM -> setAlarmStatus(AlarmStatus.NO_ALARM);
-            default -> throw new IllegalStateException("Unexpected value: " + securityRepository.getAlarmStatus());
-        }
+        setAlarmStatus(afterSensorDeactivated(securityRepository.getAlarmStatus()));
+    }
+
+    /**
+     * @return the alarm status that follows the provided one when a sensor is activated in an armed system
+     */
+    private static AlarmStatus afterSensorActivated(AlarmStatus alarmStatus) {
+        return switch(alarmStatus) {
+            case NO_ALARM -> AlarmStatus.PENDING_ALARM;
+            case PENDING_ALARM -> AlarmStatus.ALARM;
+            case ALARM -> AlarmStatus.ALARM;
+            default -> throw new IllegalStateException("Unexpected value: " + alarmStatus);
+        };
+    }
+
+    /**
+     * @return the alarm status that follows the provided one when a sensor is deactivated
+     */
+    private static AlarmStatus afterSensorDeactivated(AlarmStatus alarmStatus) {
+        return switch(alarmStatus) {
+            case PENDING_ALARM -> AlarmStatus.NO_ALARM;
+            case ALARM -> AlarmStatus.PENDING_ALARM;
+            case NO_ALARM -> AlarmStatus.NO_ALARM;
+            default -> throw new IllegalStateException("Unexpected value: " + alarmStatus);
+        };
     }
 
     /**
@@ -126,6 +230,7 @@ public class SecurityService {
      * @param active
      */
     public void changeSensorActivationStatus(Sensor sensor, Boolean active) {
+        sensorEvents.mark();
         if(securityRepository.getAlarmStatus() != AlarmStatus.ALARM) {
             if(active) {
                 handleSensorActivated();
@@ -135,6 +240,8 @@ public class SecurityService {
         }
         sensor.setActive(active);
         securityRepository.updateSensor(sensor);
+        activeSensors.update(sensor);
+        history.recordSensor(sensor.getSensorId(), active);
     }
     /**
      * Change the activation status for the specified sensor and update alarm status if necessary.
@@ -142,12 +249,64 @@ public class SecurityService {
      * @param sensor
      */
     public void changeSensorActivationStatus(Sensor sensor) {
+        sensorEvents.mark();
         if (getAlarmStatus() == AlarmStatus.PENDING_ALARM && !sensor.getActive()) {
             handleSensorDeactivated();
         } else if (getAlarmStatus() == AlarmStatus.ALARM && getArmingStatus() == ArmingStatus.DISARMED) {
             handleSensorDeactivated();
         }
         securityRepository.updateSensor(sensor);
+        activeSensors.update(sensor);
+        history.recordSensor(sensor.getSensorId(), Boolean.TRUE.equals(sensor.getActive()));
+    }
+
+    /**
+     * Applies a burst of sensor readings in order. The alarm status moves through the same states it would
+     * if each reading were passed to {@link #changeSensorActivationStatus(Sensor, Boolean)} in turn, but the
+     * repository is written once and listeners are notified once, with the final state. The alarm history
+     * and transition counters still see every step.
+     * @param events Sensor readings, oldest first
+     */
+    public void processSensorEvents(Collection<SensorEvent> events) {
+        if(events.isEmpty()) {
+            return;
+        }
+        sensorEvents.mark(events.size());
+        AlarmStatus initialStatus = securityRepository.getAlarmStatus();
+        AlarmStatus alarmStatus = initialStatus;
+        boolean armed = securityRepository.getArmingStatus() != ArmingStatus.DISARMED;
+        Map<UUID, Sensor> changedSensors = new LinkedHashMap<>();
+
+        for(SensorEvent event : events) {
+            Sensor sensor = event.getSensor();
+            AlarmStatus previousStatus = alarmStatus;
+            if(alarmStatus != AlarmStatus.ALARM) {
+                if(event.isActive()) {
+                    if(armed) {
+                        alarmStatus = afterSensorActivated(alarmStatus);
+                    }
+                } else if(sensor.getActive()) {
+                    alarmStatus = afterSensorDeactivated(alarmStatus);
+                }
+            }
+            //every step goes into the history and the counters, even if the batch ends where it started
+            recordTransition(previousStatus, alarmStatus);
+            sensor.setActive(event.isActive());
+            history.recordSensor(sensor.getSensorId(), event.isActive());
+            changedSensors.put(sensor.getSensorId(), sensor);
+        }
+
+        if(alarmStatus != initialStatus) {
+            securityRepository.setAlarmStatus(alarmStatus);
+        }
+        securityRepository.updateSensors(changedSensors.values());
+        changedSensors.values().forEach(activeSensors::update);
+
+        AlarmStatus finalStatus = alarmStatus;
+        if(finalStatus != initialStatus) {
+            dispatch(sl -> sl.notify(finalStatus));
+        }
+        dispatch(StatusListener::sensorStatusChanged);
     }
 
     /**
@@ -156,7 +315,75 @@ public class SecurityService {
      * @param currentCameraImage
      */
     public void processImage(BufferedImage currentCameraImage) {
-        catDetected(imageService.imageContainsCat(currentCameraImage, 50.0f));
+        catDetected(scanImage(currentCameraImage));
+    }
+
+    /**
+     * Asks the image service whether the image shows a cat without changing any system state,
+     * so the (possibly slow) scan can run on a different thread than the state update.
+     * @param currentCameraImage
+     * @return true if the image service found a cat
+     */
+    public boolean scanImage(BufferedImage currentCameraImage) {
+        return imageService.imageContainsCat(currentCameraImage, CAT_CONFIDENCE_THRESHOLD);
+    }
+
+    /**
+     * Sends an image for processing without blocking the caller. If an earlier asynchronous scan is
+     * still running it is cancelled and its result ignored, so only the latest image can change the
+     * alarm status. The result is applied on the state executor once the scan completes.
+     * @param currentCameraImage
+     * @return a future completed with the scan result after it has been applied, or completed
+     * exceptionally if the scan failed, timed out or was superseded
+     */
+    public CompletableFuture<Boolean> processImageAsync(BufferedImage currentCameraImage) {
+        CompletableFuture<Boolean> scan = imageService
+                .imageContainsCatAsync(currentCameraImage, CAT_CONFIDENCE_THRESHOLD, getScanExecutor())
+                .orTimeout(scanTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        CompletableFuture<Boolean> previous = currentScan.getAndSet(scan);
+        if(previous != null) {
+            previous.cancel(true);
+        }
+        return scan.thenApplyAsync(cat -> {
+            //a newer scan may have been started while this result was waiting for the state executor
+            if(!currentScan.compareAndSet(scan, null)) {
+                throw new CancellationException("Superseded by a newer scan");
+            }
+            catDetected(cat);
+            return cat;
+        }, stateExecutor);
+    }
+
+    /**
+     * Configures how {@link #processImageAsync(BufferedImage)} runs.
+     * @param scanExecutor Executor the image service may block on. Null uses a private pool of daemon threads.
+     * @param stateExecutor Executor that applies scan results to the system state, for example the Swing EDT
+     * @param scanTimeout How long a scan may take before it is abandoned
+     */
+    public void configureAsyncScans(Executor scanExecutor, Executor stateExecutor, Duration scanTimeout) {
+        this.scanExecutor = scanExecutor;
+        this.stateExecutor = stateExecutor;
+        this.scanTimeout = scanTimeout;
+    }
+
+    private synchronized Executor getScanExecutor() {
+        if(scanExecutor == null) {
+            //a superseded scan may still be blocked on the image service, so don't queue the next one behind it
+            scanExecutor = Executors.newCachedThreadPool(r -> {
+                Thread t = new Thread(r, "catpoint-image-scan");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        return scanExecutor;
+    }
+
+    /**
+     * Updates the alarm status with the result of an image scan performed by {@link #scanImage(BufferedImage)}.
+     * @param cat True if the scan found a cat, otherwise false.
+     */
+    public void processImageResult(boolean cat) {
+        catDetected(cat);
     }
 
     public AlarmStatus getAlarmStatus() {
@@ -167,12 +394,50 @@ public class SecurityService {
         return new ConcurrentSkipListSet<>(securityRepository.getSensors());
     }
 
+    /**
+     * @return the stored sensor with the provided id, or null if there is none
+     */
+    public Sensor getSensor(UUID sensorId) {
+        return securityRepository.getSensor(sensorId);
+    }
+
     public void addSensor(Sensor sensor) {
         securityRepository.addSensor(sensor);
+        activeSensors.update(sensor);
     }
 
     public void removeSensor(Sensor sensor) {
         securityRepository.removeSensor(sensor);
+        activeSensors.remove(sensor);
+    }
+
+    /**
+     * @return true if at least one sensor is currently active
+     */
+    public boolean hasActiveSensors() {
+        return activeSensors.count() > 0;
+    }
+
+    /**
+     * @return the number of currently active sensors
+     */
+    public int getActiveSensorCount() {
+        return activeSensors.count();
+    }
+
+    /**
+     * @param sensorType The type of sensor to count
+     * @return the number of currently active sensors of the provided type
+     */
+    public int getActiveSensorCount(SensorType sensorType) {
+        return activeSensors.count(sensorType);
+    }
+
+    /**
+     * @return the recent history of status changes and sensor readings
+     */
+    public AlarmHistory getHistory() {
+        return history;
     }
 
     public ArmingStatus getArmingStatus() {
@@ -0,0 +1,337 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorType;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Filter in front of {@link SecurityService#changeSensorActivationStatus(Sensor, Boolean)} that
+ * collapses the readings of a chattering sensor into the changes that matter, so the alarm state
+ * machine, the repository and the listeners only see those.
+ *
+ * Activations are always forwarded at once, so a real intrusion is never delayed. A deactivation
+ * is held back until the sensor has been reported active for its hold time, and dropped if the
+ * sensor comes back on before then. Readings that repeat the reported state are dropped.
+ *
+ * A sensor that changes state too often within the flap window is marked as flapping. Its
+ * deactivation is then only forwarded once it has stayed inactive for a full hold time, so it
+ * stays active (and keeps the alarm informed) until it settles down.
+ *
+ * Hold times are looked up by sensor, then by sensor type, then the default. Deferred
+ * deactivations are forwarded from the scheduler thread, so a service that is also used from
+ * other threads should be reached through {@link SecurityEventLoop#submitSensorEvent(Sensor, boolean)}.
+ *
+ * The target is called without the debouncer's lock held, one reading at a time and in the order
+ * the readings were let through, so a slow target doesn't hold up other threads. A reading let
+ * through while another thread is calling the target is passed on by that thread, so the submit
+ * call may return before the target has seen it.
+ */
+public class SensorDebouncer implements AutoCloseable {
+
+    private final BiConsumer<Sensor, Boolean> target;
+    private final ScheduledExecutorService scheduler;
+    private final boolean ownsScheduler;
+    private final LongSupplier clock;
+
+    private final long defaultHoldNanos;
+    private final Map<SensorType, Long> typeHoldNanos = new EnumMap<>(SensorType.class);
+    private final Map<UUID, Long> sensorHoldNanos = new HashMap<>();
+    private int flapChanges;
+    private long flapWindowNanos;
+
+    private final Map<UUID, SensorState> states = new HashMap<>();
+    //readings let through but not yet passed to the target, and whether a thread is passing them on
+    private final Queue<SensorEvent> outbox = new ArrayDeque<>();
+    private boolean delivering;
+    private long received;
+    private long forwarded;
+    private long flapsDetected;
+
+    /**
+     * @param target Receives the readings that get through, usually a SecurityService or SecurityEventLoop
+     * @param holdTime Minimum time a sensor is reported active before a deactivation is forwarded
+     */
+    public SensorDebouncer(BiConsumer<Sensor, Boolean> target, Duration holdTime) {
+        this(target, holdTime, Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "catpoint-sensor-debouncer");
+            t.setDaemon(true);
+            return t;
+        }), System::nanoTime, true);
+    }
+
+    /**
+     * @param scheduler Forwards deferred deactivations once they are due. It is not shut down on close.
+     * @param clock Source of reading times, in nanoseconds, such as System::nanoTime
+     */
+    public SensorDebouncer(BiConsumer<Sensor, Boolean> target, Duration holdTime, ScheduledExecutorService scheduler, LongSupplier clock) {
+        this(target, holdTime, scheduler, clock, false);
+    }
+
+    private SensorDebouncer(BiConsumer<Sensor, Boolean> target, Duration holdTime, ScheduledExecutorService scheduler, LongSupplier clock, boolean ownsScheduler) {
+        this.target = target;
+        this.defaultHoldNanos = holdNanos(holdTime);
+        this.scheduler = scheduler;
+        this.clock = clock;
+        this.ownsScheduler = ownsScheduler;
+    }
+
+    /**
+     * Sets the hold time for every sensor of the provided type without a hold time of its own.
+     */
+    public synchronized void setHoldTime(SensorType sensorType, Duration holdTime) {
+        typeHoldNanos.put(sensorType, holdNanos(holdTime));
+    }
+
+    /**
+     * Sets the hold time for a single sensor.
+     */
+    public synchronized void setHoldTime(UUID sensorId, Duration holdTime) {
+        sensorHoldNanos.put(sensorId, holdNanos(holdTime));
+    }
+
+    /**
+     * Enables flap detection.
+     * @param changes Number of state changes within the window that marks a sensor as flapping, 0 to disable
+     * @param window Length of the window the changes are counted in
+     */
+    public synchronized void setFlapDetection(int changes, Duration window) {
+        if(changes < 0) {
+            throw new IllegalArgumentException("Flap threshold must not be negative: " + changes);
+        }
+        this.flapChanges = changes;
+        this.flapWindowNanos = window.toNanos();
+    }
+
+    /**
+     * Takes a reading from a sensor and forwards it now, later or not at all.
+     */
+    public void submit(Sensor sensor, boolean active) {
+        update(sensor, active);
+        deliverForwards();
+    }
+
+    private synchronized void update(Sensor sensor, boolean active) {
+        long now = clock.getAsLong();
+        long hold = getHoldNanos(sensor);
+        SensorState state = states.get(sensor.getSensorId());
+        if(state == null) {
+            //nothing is known about how long the sensor has been in its current state, so don't hold it
+            state = new SensorState(Boolean.TRUE.equals(sensor.getActive()), now - hold);
+            states.put(sensor.getSensorId(), state);
+        }
+        state.sensor = sensor;
+        received++;
+        if(active != state.raw) {
+            state.raw = active;
+            countChange(state, now);
+        }
+
+        if(active) {
+            //also drops a deactivation that is still waiting
+            state.pending = false;
+            if(!state.reported) {
+                forward(state, true, now);
+            }
+            return;
+        }
+        if(!state.reported) {
+            return;
+        }
+        long due = state.flapping ? now + hold : state.reportedAt + hold;
+        if(due - now <= 0) {
+            forward(state, false, now);
+            return;
+        }
+        state.pending = true;
+        state.dueAt = due;
+        if(!state.scheduled) {
+            schedule(state, due - now);
+        }
+    }
+
+    /**
+     * Drops what is known about the sensor, for example after it has been removed. A deactivation
+     * that is still waiting is not forwarded.
+     */
+    public synchronized void forget(Sensor sensor) {
+        SensorState state = states.remove(sensor.getSensorId());
+        if(state != null) {
+            state.pending = false;
+        }
+        sensorHoldNanos.remove(sensor.getSensorId());
+    }
+
+    /**
+     * @return true if the sensor is currently considered to be flapping
+     */
+    public synchronized boolean isFlapping(UUID sensorId) {
+        SensorState state = states.get(sensorId);
+        return state != null && state.flapping;
+    }
+
+    /**
+     * @return the number of readings submitted
+     */
+    public synchronized long getReceivedCount() {
+        return received;
+    }
+
+    /**
+     * @return the number of readings passed on to the target
+     */
+    public synchronized long getForwardedCount() {
+        return forwarded;
+    }
+
+    /**
+     * @return the number of times a sensor started flapping
+     */
+    public synchronized long getFlapsDetected() {
+        return flapsDetected;
+    }
+
+    /**
+     * Stops the scheduler if the debouncer created it. Deactivations still waiting are not forwarded.
+     */
+    @Override
+    public void close() {
+        if(ownsScheduler) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private long getHoldNanos(Sensor sensor) {
+        Long hold = sensorHoldNanos.get(sensor.getSensorId());
+        if(hold == null) {
+            hold = typeHoldNanos.get(sensor.getSensorType());
+        }
+        return hold == null ? defaultHoldNanos : hold;
+    }
+
+    private void countChange(SensorState state, long now) {
+        if(flapChanges == 0) {
+            return;
+        }
+        if(now - state.windowStart > flapWindowNanos) {
+            state.windowStart = now;
+            state.windowChanges = 0;
+        }
+        if(++state.windowChanges >= flapChanges && !state.flapping) {
+            state.flapping = true;
+            flapsDetected++;
+        }
+    }
+
+    private void forward(SensorState state, boolean active, long now) {
+        state.pending = false;
+        state.reported = active;
+        state.reportedAt = now;
+        if(!active) {
+            //a flapping sensor only gets here after staying inactive for a full hold time, so it has settled
+            state.flapping = false;
+            state.windowChanges = 0;
+        }
+        forwarded++;
+        outbox.add(new SensorEvent(state.sensor, active));
+    }
+
+    /**
+     * Passes the waiting readings to the target, unless another thread is already doing so.
+     */
+    private void deliverForwards() {
+        synchronized (this) {
+            if(delivering) {
+                return;
+            }
+            delivering = true;
+        }
+        boolean drained = false;
+        try {
+            SensorEvent next;
+            while((next = nextForward()) != null) {
+                target.accept(next.getSensor(), next.isActive());
+            }
+            drained = true;
+        } finally {
+            if(!drained) {
+                //the target threw; whatever is left goes out with the next reading
+                synchronized (this) {
+                    delivering = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the next reading for the target, or null once there are none left, which also ends the delivery
+     */
+    private synchronized SensorEvent nextForward() {
+        SensorEvent next = outbox.poll();
+        if(next == null) {
+            delivering = false;
+        }
+        return next;
+    }
+
+    private void schedule(SensorState state, long delayNanos) {
+        state.scheduled = true;
+        scheduler.schedule(() -> {
+            checkPending(state);
+            deliverForwards();
+        }, delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Runs on the scheduler. The deactivation may have been dropped or pushed back since it was scheduled.
+     */
+    private synchronized void checkPending(SensorState state) {
+        state.scheduled = false;
+        if(!state.pending) {
+            return;
+        }
+        long now = clock.getAsLong();
+        if(state.dueAt - now > 0) {
+            schedule(state, state.dueAt - now);
+        } else {
+            forward(state, false, now);
+        }
+    }
+
+    private static long holdNanos(Duration holdTime) {
+        if(holdTime.isNegative()) {
+            throw new IllegalArgumentException("Hold time must not be negative: " + holdTime);
+        }
+        return holdTime.toNanos();
+    }
+
+    private static class SensorState {
+        private Sensor sensor;
+        private boolean raw;
+        private boolean reported;
+        private long reportedAt;
+        private boolean pending;
+        private boolean scheduled;
+        private long dueAt;
+        private long windowStart;
+        private int windowChanges;
+        private boolean flapping;
+
+        private SensorState(boolean active, long reportedAt) {
+            this.raw = active;
+            this.reported = active;
+            this.reportedAt = reportedAt;
+        }
+    }
+}
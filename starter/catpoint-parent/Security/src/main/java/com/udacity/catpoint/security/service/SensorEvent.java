@@ -0,0 +1,24 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.security.data.Sensor;
+
+/**
+ * A single sensor reading: the sensor it came from and whether that sensor is now active.
+ */
+public class SensorEvent {
+    private final Sensor sensor;
+    private final boolean active;
+
+    public SensorEvent(Sensor sensor, boolean active) {
+        this.sensor = sensor;
+        this.active = active;
+    }
+
+    public Sensor getSensor() {
+        return sensor;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+}
@@ -3,8 +3,11 @@ module com.udacity.catpoint.Security {
     requires java.desktop;
     requires java.prefs;
     requires java.sql;
+    requires java.management;
+    requires org.slf4j;
     requires com.udacity.catpoint.Image;
     requires com.google.gson;
     requires com.google.common;
     opens com.udacity.catpoint.security.data to com.google.gson;
+    exports com.udacity.catpoint.security.metrics to java.management;
 }
\ No newline at end of file
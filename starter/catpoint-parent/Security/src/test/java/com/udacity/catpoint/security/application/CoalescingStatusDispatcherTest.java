@@ -0,0 +1,155 @@
+package com.udacity.catpoint.security.application;
+
+import com.udacity.catpoint.security.data.AlarmStatus;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Deliveries run on the EDT, which works without a display, so these run headless too.
+ */
+public class CoalescingStatusDispatcherTest {
+
+    private static final int FRAMES_PER_SECOND = 20;
+    private static final long FRAME_NANOS = TimeUnit.SECONDS.toNanos(1) / FRAMES_PER_SECOND;
+    private static final AlarmStatus[] ALARM_STATUSES = AlarmStatus.values();
+
+    /**
+     * Remembers the latest state it was given and when each alarm status arrived. Every delivery
+     * carries an alarm status in these tests, so those times are the delivery times.
+     */
+    private static class RecordingListener implements StatusListener {
+        private final List<Long> deliveries = new CopyOnWriteArrayList<>();
+        private volatile AlarmStatus alarmStatus;
+        private volatile Boolean catDetected;
+        private volatile long lastSensorChangeNanos;
+
+        @Override
+        public void notify(AlarmStatus status) {
+            deliveries.add(System.nanoTime());
+            alarmStatus = status;
+        }
+
+        @Override
+        public void catDetected(boolean catDetected) {
+            this.catDetected = catDetected;
+        }
+
+        @Override
+        public void sensorStatusChanged() {
+            lastSensorChangeNanos = System.nanoTime();
+        }
+    }
+
+    private static void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while(!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met within 5 seconds");
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    void burstFromManyThreads_ListenersEndWithFinalState() throws InterruptedException {
+        CoalescingStatusDispatcher dispatcher = new CoalescingStatusDispatcher(FRAMES_PER_SECOND);
+        RecordingListener listener = new RecordingListener();
+        dispatcher.addStatusListener(listener);
+
+        List<Thread> producers = new ArrayList<>();
+        for(int p = 0; p < 4; p++) {
+            Random random = new Random(p);
+            Thread producer = new Thread(() -> {
+                for(int i = 0; i < 20_000; i++) {
+                    dispatcher.notify(ALARM_STATUSES[random.nextInt(ALARM_STATUSES.length)]);
+                    dispatcher.catDetected(random.nextBoolean());
+                    dispatcher.sensorStatusChanged();
+                }
+            });
+            producers.add(producer);
+            producer.start();
+        }
+        for(Thread producer : producers) {
+            producer.join();
+        }
+
+        long finalUpdate = System.nanoTime();
+        dispatcher.notify(AlarmStatus.PENDING_ALARM);
+        dispatcher.catDetected(true);
+        dispatcher.sensorStatusChanged();
+        awaitCondition(() -> listener.lastSensorChangeNanos > finalUpdate
+                && listener.alarmStatus == AlarmStatus.PENDING_ALARM
+                && Boolean.TRUE.equals(listener.catDetected));
+        //far fewer deliveries than updates
+        assertTrue(listener.deliveries.size() < 80_000 / 10);
+    }
+
+    @Test
+    void continuousUpdates_DeliveredAtMostOncePerFrame() throws InterruptedException {
+        CoalescingStatusDispatcher dispatcher = new CoalescingStatusDispatcher(FRAMES_PER_SECOND);
+        RecordingListener listener = new RecordingListener();
+        dispatcher.addStatusListener(listener);
+
+        long runNanos = TimeUnit.SECONDS.toNanos(1);
+        List<Thread> producers = new ArrayList<>();
+        for(int p = 0; p < 3; p++) {
+            Thread producer = new Thread(() -> {
+                long end = System.nanoTime() + runNanos;
+                for(int i = 0; System.nanoTime() < end; i++) {
+                    dispatcher.notify(ALARM_STATUSES[i % ALARM_STATUSES.length]);
+                }
+            });
+            producers.add(producer);
+            producer.start();
+        }
+        for(Thread producer : producers) {
+            producer.join();
+        }
+        Thread.sleep(TimeUnit.NANOSECONDS.toMillis(FRAME_NANOS) * 2);
+
+        List<Long> deliveries = listener.deliveries;
+        //the first delivery goes out immediately, then at most one per frame
+        assertTrue(deliveries.size() <= FRAMES_PER_SECOND + 3, "deliveries: " + deliveries.size());
+        for(int i = 1; i < deliveries.size(); i++) {
+            long gap = deliveries.get(i) - deliveries.get(i - 1);
+            //small allowance for the time between starting a delivery and reaching the listener
+            assertTrue(gap >= FRAME_NANOS - TimeUnit.MILLISECONDS.toNanos(2), "gap of " + gap + " ns");
+        }
+    }
+
+    @Test
+    void updateDuringDelivery_IsDeliveredNext() throws InterruptedException {
+        CoalescingStatusDispatcher dispatcher = new CoalescingStatusDispatcher(FRAMES_PER_SECOND);
+        CountDownLatch firstDelivery = new CountDownLatch(1);
+        RecordingListener listener = new RecordingListener() {
+            @Override
+            public void notify(AlarmStatus status) {
+                super.notify(status);
+                if(status == AlarmStatus.PENDING_ALARM) {
+                    //another thread updates after the pending state was taken but before the delivery ends
+                    Thread racer = new Thread(() -> dispatcher.notify(AlarmStatus.ALARM));
+                    racer.start();
+                    try {
+                        racer.join();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    firstDelivery.countDown();
+                }
+            }
+        };
+        dispatcher.addStatusListener(listener);
+
+        dispatcher.notify(AlarmStatus.PENDING_ALARM);
+        assertTrue(firstDelivery.await(5, TimeUnit.SECONDS));
+        awaitCondition(() -> listener.alarmStatus == AlarmStatus.ALARM);
+        assertEquals(2, listener.deliveries.size());
+    }
+}
@@ -0,0 +1,62 @@
+package com.udacity.catpoint.security.application;
+
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.swing.event.TableModelEvent;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SensorTableModelTest {
+
+    private final SensorTableModel model = new SensorTableModel();
+    private final List<TableModelEvent> events = new ArrayList<>();
+    private final List<Sensor> sensors = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        for(String name : List.of("a", "b", "c")) {
+            sensors.add(new Sensor(name, SensorType.DOOR));
+        }
+        model.setSensors(sensors);
+        model.addTableModelListener(events::add);
+    }
+
+    @Test
+    void changedSensor_FiresSingleRowUpdate() {
+        sensors.get(1).setActive(true);
+        model.setSensors(sensors);
+
+        assertEquals(1, events.size());
+        assertEquals(TableModelEvent.UPDATE, events.get(0).getType());
+        assertEquals(1, events.get(0).getFirstRow());
+        assertEquals("Active", model.getValueAt(1, 2));
+    }
+
+    @Test
+    void unchangedSensors_FireNothing() {
+        model.setSensors(new ArrayList<>(sensors));
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    void addedAndRemovedSensors_FireSingleRowInsertAndDelete() {
+        sensors.add(2, new Sensor("bb", SensorType.WINDOW));
+        model.setSensors(sensors);
+        assertEquals(1, events.size());
+        assertEquals(TableModelEvent.INSERT, events.get(0).getType());
+        assertEquals(2, events.get(0).getFirstRow());
+        assertEquals("bb", model.getValueAt(2, 0));
+
+        sensors.remove(0);
+        model.setSensors(sensors);
+        assertEquals(2, events.size());
+        assertEquals(TableModelEvent.DELETE, events.get(1).getType());
+        assertEquals(0, events.get(1).getFirstRow());
+        assertEquals(3, model.getRowCount());
+    }
+}
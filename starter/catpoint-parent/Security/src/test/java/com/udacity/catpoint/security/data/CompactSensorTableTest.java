@@ -0,0 +1,98 @@
+package com.udacity.catpoint.security.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompactSensorTableTest {
+
+    @Test
+    void viewsReadAndWriteTheTable() {
+        CompactSensorTable table = new CompactSensorTable(1);
+        Sensor door = new Sensor("door", SensorType.DOOR);
+        assertTrue(table.put(door));
+        assertFalse(table.put(door));
+
+        Sensor view = table.get(door.getSensorId());
+        assertEquals(door, view);
+        assertEquals(door.hashCode(), view.hashCode());
+        assertEquals("door", view.getName());
+        assertEquals(SensorType.DOOR, view.getSensorType());
+        assertFalse(view.getActive());
+
+        view.setActive(true);
+        view.setName("back door");
+        assertTrue(table.get(door.getSensorId()).getActive());
+        assertEquals("back door", table.asSet().iterator().next().getName());
+        assertEquals(1, table.getActiveCount());
+        //the original sensor was copied, not retained
+        assertEquals("door", door.getName());
+
+        table.remove(door.getSensorId());
+        assertThrows(IllegalStateException.class, view::getName);
+    }
+
+    @Test
+    void randomAddsAndRemoves_MatchHashMap() {
+        CompactSensorTable table = new CompactSensorTable(4);
+        Map<UUID, Sensor> expected = new HashMap<>();
+        List<UUID> ids = new ArrayList<>();
+        Random random = new Random(42);
+        for(int i = 0; i < 20_000; i++) {
+            if(ids.isEmpty() || random.nextInt(3) > 0) {
+                Sensor sensor = new Sensor("sensor " + random.nextInt(10), SensorType.values()[random.nextInt(3)]);
+                sensor.setActive(random.nextBoolean());
+                table.put(sensor);
+                expected.put(sensor.getSensorId(), sensor);
+                ids.add(sensor.getSensorId());
+            } else {
+                UUID id = ids.remove(random.nextInt(ids.size()));
+                assertTrue(table.remove(id));
+                assertFalse(table.remove(id));
+                expected.remove(id);
+            }
+        }
+
+        assertEquals(expected.size(), table.size());
+        for(Sensor sensor : expected.values()) {
+            Sensor view = table.get(sensor.getSensorId());
+            assertEquals(sensor.getName(), view.getName());
+            assertEquals(sensor.getSensorType(), view.getSensorType());
+            assertEquals(sensor.getActive(), view.getActive());
+        }
+        assertEquals(expected.keySet(), toMap(table).keySet());
+    }
+
+    @Test
+    void iteratorRemove_VisitsEverySensorOnce() {
+        CompactSecurityRepositoryImpl repository = new CompactSecurityRepositoryImpl();
+        for(int i = 0; i < 10; i++) {
+            repository.addSensor(new Sensor("sensor " + i, SensorType.WINDOW));
+        }
+
+        int visited = 0;
+        for(Iterator<Sensor> it = repository.getSensors().iterator(); it.hasNext(); ) {
+            it.next();
+            visited++;
+            if(visited % 2 == 0) {
+                it.remove();
+            }
+        }
+        assertEquals(10, visited);
+        assertEquals(5, repository.getSensors().size());
+    }
+
+    private static Map<UUID, Sensor> toMap(CompactSensorTable table) {
+        Map<UUID, Sensor> sensors = new HashMap<>();
+        table.asSet().forEach(s -> assertNull(sensors.put(s.getSensorId(), s)));
+        return sensors;
+    }
+}
@@ -0,0 +1,69 @@
+package com.udacity.catpoint.security.data;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JournalSecurityRepositoryImplTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void changesSurviveReopen_ReplayedFromJournal() {
+        Sensor door = new Sensor("door", SensorType.DOOR);
+        Sensor window = new Sensor("window", SensorType.WINDOW);
+
+        JournalSecurityRepositoryImpl repository = new JournalSecurityRepositoryImpl(directory);
+        repository.addSensor(door);
+        repository.addSensor(window);
+        door.setActive(true);
+        repository.updateSensor(door);
+        repository.removeSensor(window);
+        repository.setArmingStatus(ArmingStatus.ARMED_AWAY);
+        repository.setAlarmStatus(AlarmStatus.PENDING_ALARM);
+
+        JournalSecurityRepositoryImpl reopened = new JournalSecurityRepositoryImpl(directory);
+        assertEquals(ArmingStatus.ARMED_AWAY, reopened.getArmingStatus());
+        assertEquals(AlarmStatus.PENDING_ALARM, reopened.getAlarmStatus());
+        assertEquals(1, reopened.getSensors().size());
+        Sensor loaded = reopened.getSensors().iterator().next();
+        assertEquals(door, loaded);
+        assertEquals("door", loaded.getName());
+        assertTrue(loaded.getActive());
+    }
+
+    @Test
+    void journalTailIsReplayedOnTopOfSnapshot() {
+        JournalSecurityRepositoryImpl repository = new JournalSecurityRepositoryImpl(directory, 2);
+        repository.addSensor(new Sensor("first", SensorType.MOTION));
+        repository.addSensor(new Sensor("second", SensorType.MOTION)); //triggers a snapshot
+        repository.addSensor(new Sensor("third", SensorType.MOTION));
+
+        JournalSecurityRepositoryImpl reopened = new JournalSecurityRepositoryImpl(directory, 2);
+        assertEquals(3, reopened.getSensors().size());
+    }
+
+    @Test
+    void tornRecordAtEndOfJournal_IsDiscarded() throws IOException {
+        JournalSecurityRepositoryImpl repository = new JournalSecurityRepositoryImpl(directory);
+        repository.addSensor(new Sensor("door", SensorType.DOOR));
+        repository.setArmingStatus(ArmingStatus.ARMED_HOME);
+
+        //half a record header, as if the process died in the middle of an append
+        Files.write(directory.resolve("catpoint.journal"), new byte[]{0, 0, 0, 40, 1}, StandardOpenOption.APPEND);
+
+        JournalSecurityRepositoryImpl reopened = new JournalSecurityRepositoryImpl(directory);
+        assertEquals(ArmingStatus.ARMED_HOME, reopened.getArmingStatus());
+        assertEquals(1, reopened.getSensors().size());
+
+        reopened.setAlarmStatus(AlarmStatus.ALARM);
+        assertEquals(AlarmStatus.ALARM, new JournalSecurityRepositoryImpl(directory).getAlarmStatus());
+    }
+}
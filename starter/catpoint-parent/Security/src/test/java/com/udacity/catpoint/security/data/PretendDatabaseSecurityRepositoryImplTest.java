@@ -0,0 +1,93 @@
+package com.udacity.catpoint.security.data;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.prefs.BackingStoreException;
+import java.util.prefs.Preferences;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs against a throwaway preferences node, so the application's own sensors are left alone.
+ */
+public class PretendDatabaseSecurityRepositoryImplTest {
+
+    private Preferences prefs;
+
+    @BeforeEach
+    void init() throws BackingStoreException {
+        prefs = Preferences.userRoot().node("com/udacity/catpoint/test/" + System.nanoTime());
+    }
+
+    @AfterEach
+    void cleanUp() throws BackingStoreException {
+        prefs.removeNode();
+    }
+
+    @Test
+    void binaryFormat_StoresMoreSensorsThanFitInOneValue() {
+        PretendDatabaseSecurityRepositoryImpl repository = new PretendDatabaseSecurityRepositoryImpl(prefs, 0, 0);
+        List<Sensor> sensors = new ArrayList<>();
+        for(int i = 0; i < 2000; i++) {
+            Sensor sensor = new Sensor("sensor " + i, SensorType.values()[i % 3]);
+            sensor.setActive(i % 2 == 0);
+            sensors.add(sensor);
+            repository.addSensor(sensor);
+        }
+        repository.setArmingStatus(ArmingStatus.ARMED_AWAY);
+
+        PretendDatabaseSecurityRepositoryImpl reloaded = new PretendDatabaseSecurityRepositoryImpl(prefs, 0, 0);
+        assertEquals(2000, reloaded.getSensors().size());
+        assertEquals(ArmingStatus.ARMED_AWAY, reloaded.getArmingStatus());
+        for(Sensor sensor : sensors) {
+            Sensor stored = reloaded.getSensor(sensor.getSensorId());
+            assertEquals(sensor.getName(), stored.getName());
+            assertEquals(sensor.getSensorType(), stored.getSensorType());
+            assertEquals(sensor.getActive(), stored.getActive());
+        }
+    }
+
+    @Test
+    void existingJson_MigratedToBinaryOnFirstLoad() {
+        Sensor door = new Sensor("door", SensorType.DOOR);
+        door.setActive(true);
+        prefs.put("SENSORS", new Gson().toJson(Set.of(door)));
+
+        PretendDatabaseSecurityRepositoryImpl repository = new PretendDatabaseSecurityRepositoryImpl(prefs, 0, 0);
+        assertTrue(repository.getSensor(door.getSensorId()).getActive());
+        assertNull(prefs.get("SENSORS", null));
+        assertNotNull(prefs.get("SENSOR_CHUNKS", null));
+
+        //and back again for a repository still configured for JSON
+        PretendDatabaseSecurityRepositoryImpl json = new PretendDatabaseSecurityRepositoryImpl(prefs,
+                PretendDatabaseSecurityRepositoryImpl.SensorFormat.JSON, 0, 0);
+        assertEquals("door", json.getSensor(door.getSensorId()).getName());
+        assertNotNull(prefs.get("SENSORS", null));
+        assertNull(prefs.get("SENSOR_CHUNKS", null));
+    }
+
+    @Test
+    void statusAvailableBeforeSensorsAreRead() {
+        prefs.put("ALARM_STATUS", AlarmStatus.PENDING_ALARM.toString());
+        //points at chunks that don't exist, so reading the sensors fails
+        prefs.put("SENSOR_CHUNKS", "7:3");
+
+        PretendDatabaseSecurityRepositoryImpl repository = new PretendDatabaseSecurityRepositoryImpl(prefs, 0, 0);
+        assertEquals(AlarmStatus.PENDING_ALARM, repository.getAlarmStatus());
+        assertThrows(IllegalStateException.class, repository::getSensors);
+    }
+
+    @Test
+    void codec_RejectsUnknownVersion() {
+        byte[] encoded = SecurityStateCodec.encodeSensors(List.of(new Sensor("window", SensorType.WINDOW)));
+        encoded[0] = SecurityStateCodec.VERSION + 1;
+        assertThrows(IllegalArgumentException.class, () -> SecurityStateCodec.decodeSensors(ByteBuffer.wrap(encoded), s -> { }));
+    }
+}
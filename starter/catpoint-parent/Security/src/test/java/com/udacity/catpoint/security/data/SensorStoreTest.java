@@ -0,0 +1,59 @@
+package com.udacity.catpoint.security.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SensorStoreTest {
+
+    @Test
+    void iteratesInSameOrderAsSensorCompareTo() {
+        SensorStore store = new SensorStore();
+        TreeSet<Sensor> expected = new TreeSet<>();
+        for(String name : List.of("b", "a", "c", "a")) {
+            for(SensorType type : SensorType.values()) {
+                Sensor sensor = new Sensor(name, type);
+                store.add(sensor);
+                expected.add(sensor);
+            }
+        }
+        assertIterableEquals(expected, store);
+    }
+
+    @Test
+    void putOfRenamedSensor_MovesItInDisplayOrder() {
+        SensorStore store = new SensorStore();
+        Sensor alpha = new Sensor("alpha", SensorType.DOOR);
+        Sensor beta = new Sensor("beta", SensorType.DOOR);
+        store.add(alpha);
+        store.add(beta);
+
+        alpha.setName("zulu");
+        store.put(alpha);
+
+        assertEquals(List.of("beta", "zulu"), store.stream().map(Sensor::getName).collect(Collectors.toList()));
+        assertEquals(2, store.size());
+    }
+
+    @Test
+    void membershipIsBySensorId() {
+        SensorStore store = new SensorStore();
+        Sensor sensor = new Sensor("door", SensorType.DOOR);
+        store.add(sensor);
+
+        Sensor copy = new Sensor("other name", SensorType.WINDOW);
+        copy.setSensorId(sensor.getSensorId());
+        assertTrue(store.contains(copy));
+        assertFalse(store.add(copy));
+
+        store.put(copy);
+        assertSame(copy, store.get(sensor.getSensorId()));
+        assertTrue(store.remove(sensor));
+        assertTrue(store.isEmpty());
+        assertFalse(store.iterator().hasNext());
+    }
+}
@@ -0,0 +1,46 @@
+package com.udacity.catpoint.security.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetricsRegistryTest {
+
+    @Test
+    void sameName_ReturnsSameMetric() {
+        MetricsRegistry metrics = new MetricsRegistry();
+        metrics.counter("scans").increment();
+        metrics.counter("scans").add(2);
+        assertEquals(3, metrics.counter("scans").getCount());
+        assertThrows(IllegalArgumentException.class, () -> metrics.histogram("scans"));
+    }
+
+    @Test
+    void histogramPercentiles_WithinBucketError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for(long micros = 1; micros <= 1000; micros++) {
+            histogram.record(micros * 1000);
+        }
+        assertEquals(1000, histogram.getCount());
+        assertEquals(500.5, histogram.getMeanMicros(), 0.001);
+        assertEquals(500, histogram.getMedianMicros(), 500 * 0.125);
+        assertEquals(990, histogram.get99thPercentileMicros(), 990 * 0.125);
+        assertEquals(1000, histogram.getMaxMicros(), 0.001);
+    }
+
+    @Test
+    void registeredMetrics_ReadableOverJmx() throws Exception {
+        MetricsRegistry metrics = new MetricsRegistry();
+        metrics.counter("before").increment();
+        metrics.registerMBeans("com.udacity.catpoint.test");
+        metrics.histogram("after").record(2_000);
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        assertEquals(1L, server.getAttribute(new ObjectName("com.udacity.catpoint.test:type=Counter,name=\"before\""), "Count"));
+        assertEquals(1L, server.getAttribute(new ObjectName("com.udacity.catpoint.test:type=LatencyHistogram,name=\"after\""), "Count"));
+    }
+}
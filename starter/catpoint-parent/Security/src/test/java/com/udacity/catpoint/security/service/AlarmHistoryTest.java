@@ -0,0 +1,66 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.ArmingStatus;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AlarmHistoryTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+
+    @Test
+    void alarmTransitions_OnlyThoseInsideWindow() {
+        AlarmHistory history = new AlarmHistory(16, false, now::get);
+        history.recordAlarmStatus(AlarmStatus.PENDING_ALARM);
+        now.addAndGet(Duration.ofMinutes(10).toMillis());
+        history.recordArmingStatus(ArmingStatus.ARMED_AWAY);
+        history.recordAlarmStatus(AlarmStatus.ALARM);
+        now.addAndGet(Duration.ofMinutes(1).toMillis());
+
+        List<AlarmHistory.Entry> transitions = history.getAlarmTransitions(Duration.ofMinutes(5));
+        assertEquals(1, transitions.size());
+        assertEquals(AlarmStatus.ALARM, transitions.get(0).getAlarmStatus());
+        assertEquals(3, history.getEntries(Duration.ofHours(1)).size());
+    }
+
+    @Test
+    void fullBuffer_KeepsNewestEntries() {
+        AlarmHistory history = new AlarmHistory(4, true, now::get);
+        UUID sensorId = UUID.randomUUID();
+        for(int i = 0; i < 10; i++) {
+            history.recordSensor(sensorId, i % 2 == 0);
+        }
+        List<AlarmHistory.Entry> entries = history.getEntries(Duration.ofHours(1));
+        assertEquals(4, history.size());
+        assertEquals(4, entries.size());
+        assertEquals(sensorId, entries.get(0).getSensorId());
+        assertFalse(entries.get(3).isActive());
+    }
+
+    @Test
+    void mostActiveSensors_OrderedByActivations() {
+        AlarmHistory history = new AlarmHistory(64, false, now::get);
+        UUID door = UUID.randomUUID();
+        UUID window = UUID.randomUUID();
+        UUID motion = UUID.randomUUID();
+        for(int i = 0; i < 3; i++) {
+            history.recordSensor(window, true);
+            history.recordSensor(window, false);
+        }
+        history.recordSensor(door, true);
+        history.recordSensor(motion, false);
+
+        List<AlarmHistory.SensorActivity> mostActive = history.getMostActiveSensors(Duration.ofHours(1), 5);
+        assertEquals(2, mostActive.size());
+        assertEquals(window, mostActive.get(0).getSensorId());
+        assertEquals(3, mostActive.get(0).getActivations());
+        assertEquals(door, mostActive.get(1).getSensorId());
+    }
+}
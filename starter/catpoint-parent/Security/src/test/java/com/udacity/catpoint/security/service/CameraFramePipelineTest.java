@@ -0,0 +1,70 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.image.camera.FrameChangeDetector;
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CameraFramePipelineTest {
+
+    private static BufferedImage frame(Color color) {
+        BufferedImage image = new BufferedImage(64, 48, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(color);
+        g.fillRect(0, 0, 64, 48);
+        g.dispose();
+        return image;
+    }
+
+    @Test
+    void unchangedFrames_AreNotClassified() throws Exception {
+        List<BufferedImage> frames = List.of(frame(Color.BLACK), frame(Color.BLACK), frame(Color.BLACK), frame(Color.WHITE), frame(Color.WHITE));
+        Iterator<BufferedImage> it = frames.iterator();
+        List<BufferedImage> classified = new ArrayList<>();
+
+        CameraFramePipeline pipeline = new CameraFramePipeline(() -> it.hasNext() ? it.next() : null,
+                new FrameChangeDetector(10, 0.1), 4, classified::add);
+        pipeline.start();
+
+        assertTrue(pipeline.awaitCompletion(5, TimeUnit.SECONDS));
+        assertEquals(5, pipeline.getFramesRead());
+        assertEquals(3, pipeline.getFramesUnchanged());
+        assertEquals(List.of(frames.get(0), frames.get(3)), classified);
+    }
+
+    @Test
+    void slowClassifier_DropsOldestFrames() throws Exception {
+        Color[] colors = {Color.BLACK, Color.WHITE};
+        int[] count = {0};
+        CountDownLatch release = new CountDownLatch(1);
+        List<BufferedImage> classified = new ArrayList<>();
+
+        //alternate between black and white so every frame counts as changed
+        CameraFramePipeline pipeline = new CameraFramePipeline(() -> count[0] < 20 ? frame(colors[count[0]++ % 2]) : null,
+                new FrameChangeDetector(10, 0.1), 2, frame -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            classified.add(frame);
+        });
+        pipeline.start();
+
+        Thread.sleep(200);
+        release.countDown();
+        assertTrue(pipeline.awaitCompletion(5, TimeUnit.SECONDS));
+        assertEquals(20, pipeline.getFramesRead());
+        assertTrue(pipeline.getFramesDropped() > 0);
+        assertEquals(20, pipeline.getFramesDropped() + pipeline.getFramesClassified());
+        assertTrue(classified.size() <= 3);
+    }
+}
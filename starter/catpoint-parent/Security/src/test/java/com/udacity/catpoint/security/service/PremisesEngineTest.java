@@ -0,0 +1,124 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.security.data.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PremisesEngineTest {
+
+    @Test
+    void premisesAreIndependent() throws Exception {
+        try (PremisesEngine engine = new PremisesEngine(4, PremisesEngine.inMemoryPremises(null))) {
+            List<Sensor> sensors = new ArrayList<>();
+            for(int i = 0; i < 100; i++) {
+                Sensor sensor = new Sensor("door", SensorType.DOOR);
+                sensors.add(sensor);
+                engine.addSensor("premises_" + i, sensor);
+                //only the even premises are armed
+                if(i % 2 == 0) {
+                    engine.submitArmingStatus("premises_" + i, ArmingStatus.ARMED_HOME);
+                }
+            }
+            for(int i = 0; i < 100; i++) {
+                engine.submitSensorEvent("premises_" + i, sensors.get(i).getSensorId(), true);
+            }
+            engine.drain().get(5, TimeUnit.SECONDS);
+
+            assertEquals(100, engine.getPremisesCount());
+            assertEquals(100, engine.getEventCount());
+            for(int i = 0; i < 100; i++) {
+                AlarmStatus expected = i % 2 == 0 ? AlarmStatus.PENDING_ALARM : AlarmStatus.NO_ALARM;
+                assertEquals(expected, engine.submit("premises_" + i, SecurityService::getAlarmStatus).get(5, TimeUnit.SECONDS));
+            }
+        }
+    }
+
+    @Test
+    void eventsForOnePremises_AppliedInOrder() throws Exception {
+        try (PremisesEngine engine = new PremisesEngine(2, PremisesEngine.inMemoryPremises(null))) {
+            Sensor sensor = new Sensor("window", SensorType.WINDOW);
+            engine.addSensor("home", sensor);
+            for(int i = 0; i < 1000; i++) {
+                engine.submitSensorEvent("home", sensor.getSensorId(), i % 2 == 1);
+            }
+            //arming resets the sensor, so it must come after the burst before it
+            engine.submitArmingStatus("home", ArmingStatus.ARMED_AWAY);
+            assertEquals(0, (int) engine.submit("home", SecurityService::getActiveSensorCount).get(5, TimeUnit.SECONDS));
+
+            engine.submitSensorEvent("home", sensor.getSensorId(), true);
+            assertEquals(AlarmStatus.PENDING_ALARM, engine.submit("home", SecurityService::getAlarmStatus).get(5, TimeUnit.SECONDS));
+            assertEquals(1001, engine.getEventCount());
+            assertTrue(engine.removePremises("home").get(5, TimeUnit.SECONDS));
+            assertEquals(0, engine.getPremisesCount());
+        }
+    }
+
+    @Test
+    void unknownSensorInBurst_OnlyThatReadingDropped() throws Exception {
+        try (PremisesEngine engine = new PremisesEngine(1, PremisesEngine.inMemoryPremises(null))) {
+            Sensor door = new Sensor("door", SensorType.DOOR);
+            Sensor window = new Sensor("window", SensorType.WINDOW);
+            engine.addSensor("home", door);
+            engine.addSensor("home", window);
+
+            //hold the worker so the readings below are taken off the queue as one burst
+            CountDownLatch release = new CountDownLatch(1);
+            engine.submit("home", service -> {
+                try {
+                    return release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            });
+            engine.submitSensorEvent("home", door.getSensorId(), true);
+            engine.submitSensorEvent("home", UUID.randomUUID(), true);
+            engine.submitSensorEvent("home", window.getSensorId(), true);
+            release.countDown();
+
+            assertEquals(2, (int) engine.submit("home", SecurityService::getActiveSensorCount).get(5, TimeUnit.SECONDS));
+            assertEquals(2, engine.getEventCount());
+        }
+    }
+
+    @Test
+    void submitRacingClose_IsAppliedOrRejected() throws Exception {
+        for(int round = 0; round < 200; round++) {
+            PremisesEngine engine = new PremisesEngine(2, PremisesEngine.inMemoryPremises(null));
+            List<CompletableFuture<Integer>> accepted = new CopyOnWriteArrayList<>();
+            List<Thread> producers = new ArrayList<>();
+            for(int p = 0; p < 4; p++) {
+                String premisesId = "premises_" + p;
+                Thread producer = new Thread(() -> {
+                    try {
+                        while(true) {
+                            accepted.add(engine.submit(premisesId, SecurityService::getActiveSensorCount));
+                        }
+                    } catch (IllegalStateException closed) {
+                        //expected once the engine is closed
+                    }
+                });
+                producers.add(producer);
+                producer.start();
+            }
+            Thread.sleep(2);
+            engine.close();
+            for(Thread producer : producers) {
+                producer.join();
+            }
+            //nothing that was accepted may be left behind
+            for(CompletableFuture<Integer> result : accepted) {
+                assertTrue(result.isDone());
+            }
+        }
+    }
+}
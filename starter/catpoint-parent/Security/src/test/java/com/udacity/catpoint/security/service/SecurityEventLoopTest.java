@@ -0,0 +1,100 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.security.data.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SecurityEventLoopTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void eventsFromManyProducers_AreAllApplied() throws Exception {
+        SecurityRepository repository = new JournalSecurityRepositoryImpl(directory);
+        SecurityService securityService = new SecurityService(repository, null);
+        List<Sensor> sensors = new ArrayList<>();
+        for(int i = 0; i < 8; i++) {
+            Sensor sensor = new Sensor("sensor_" + i, SensorType.MOTION);
+            sensors.add(sensor);
+            securityService.addSensor(sensor);
+        }
+
+        List<Thread> producers = new ArrayList<>();
+        try (SecurityEventLoop loop = new SecurityEventLoop(securityService)) {
+            loop.submitArmingStatus(ArmingStatus.ARMED_AWAY);
+            for(int n = 0; n < sensors.size(); n++) {
+                Sensor sensor = sensors.get(n);
+                boolean finishActive = n % 2 == 1;
+                Thread producer = new Thread(() -> {
+                    for(int i = 0; i < 1000; i++) {
+                        loop.submitSensorEvent(sensor, i % 2 == 0);
+                    }
+                    loop.submitSensorEvent(sensor, finishActive);
+                });
+                producers.add(producer);
+                producer.start();
+            }
+            for(Thread producer : producers) {
+                producer.join();
+            }
+
+            int activeCount = loop.submit(SecurityService::getActiveSensorCount).get(5, TimeUnit.SECONDS);
+            assertEquals(sensors.size() / 2, activeCount);
+            assertEquals(ArmingStatus.ARMED_AWAY, loop.submit(SecurityService::getArmingStatus).get(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void failingCommand_DoesNotStopTheLoop() throws Exception {
+        SecurityService securityService = new SecurityService(new JournalSecurityRepositoryImpl(directory), null);
+        try (SecurityEventLoop loop = new SecurityEventLoop(securityService)) {
+            Throwable failure = assertThrows(Exception.class, () -> loop.submit(service -> {
+                throw new IllegalStateException("boom");
+            }).get(5, TimeUnit.SECONDS));
+            assertTrue(failure.getCause() instanceof IllegalStateException);
+            assertEquals(AlarmStatus.NO_ALARM, loop.submit(SecurityService::getAlarmStatus).get(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void submitRacingClose_IsAppliedOrRejected() throws Exception {
+        SecurityService securityService = new SecurityService(new JournalSecurityRepositoryImpl(directory), null);
+        for(int round = 0; round < 200; round++) {
+            SecurityEventLoop loop = new SecurityEventLoop(securityService);
+            List<CompletableFuture<AlarmStatus>> accepted = new CopyOnWriteArrayList<>();
+            List<Thread> producers = new ArrayList<>();
+            for(int p = 0; p < 4; p++) {
+                Thread producer = new Thread(() -> {
+                    try {
+                        while(true) {
+                            accepted.add(loop.submit(SecurityService::getAlarmStatus));
+                        }
+                    } catch (IllegalStateException closed) {
+                        //expected once the loop is closed
+                    }
+                });
+                producers.add(producer);
+                producer.start();
+            }
+            Thread.sleep(2);
+            loop.close();
+            for(Thread producer : producers) {
+                producer.join();
+            }
+            //nothing that was accepted may be left behind
+            for(CompletableFuture<AlarmStatus> result : accepted) {
+                assertTrue(result.isDone());
+            }
+        }
+    }
+}
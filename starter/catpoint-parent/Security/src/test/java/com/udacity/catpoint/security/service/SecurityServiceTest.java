@@ -3,6 +3,7 @@ package com.udacity.catpoint.security.service;
 import com.udacity.catpoint.image.service.ImageServiceInterface;
 import com.udacity.catpoint.security.application.StatusListener;
 import com.udacity.catpoint.security.data.*;
+import com.udacity.catpoint.security.metrics.MetricsRegistry;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -15,8 +16,14 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.awt.image.BufferedImage;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -152,6 +159,105 @@ public class SecurityServiceTest {
         verify(securityRepository,times(1)).setAlarmStatus(AlarmStatus.ALARM);
     }
 
+    @Test //Active sensor counts follow activation changes without rescanning the repository.
+    void activeSensorCounts_FollowActivationChanges(){
+        when(securityRepository.getAlarmStatus()).thenReturn(AlarmStatus.ALARM);
+        Sensor window = new Sensor(randomString, SensorType.WINDOW);
+
+        securityService.changeSensorActivationStatus(sensor, true);
+        securityService.changeSensorActivationStatus(window, true);
+        Assertions.assertEquals(2, securityService.getActiveSensorCount());
+        Assertions.assertEquals(1, securityService.getActiveSensorCount(SensorType.DOOR));
+        Assertions.assertEquals(0, securityService.getActiveSensorCount(SensorType.MOTION));
+
+        securityService.changeSensorActivationStatus(sensor, false);
+        securityService.removeSensor(window);
+        Assertions.assertFalse(securityService.hasActiveSensors());
+        Assertions.assertEquals(0, securityService.getActiveSensorCount(SensorType.WINDOW));
+    }
+
+    @Test //A burst of sensor events walks the alarm state machine but persists and notifies once.
+    void sensorEventBatch_PersistsAndNotifiesOnceWithFinalState(){
+        when(securityRepository.getArmingStatus()).thenReturn(ArmingStatus.ARMED_AWAY);
+        when(securityRepository.getAlarmStatus()).thenReturn(AlarmStatus.NO_ALARM);
+        securityService.addStatusListener(mockListener);
+        Sensor window = new Sensor(randomString, SensorType.WINDOW);
+
+        securityService.processSensorEvents(List.of(
+                new SensorEvent(sensor, true),
+                new SensorEvent(window, true),
+                new SensorEvent(sensor, false)));
+
+        verify(securityRepository, times(1)).setAlarmStatus(AlarmStatus.ALARM);
+        verify(securityRepository, never()).setAlarmStatus(AlarmStatus.PENDING_ALARM);
+        verify(securityRepository, times(1)).updateSensors(ArgumentMatchers.anyCollection());
+        verify(mockListener, times(1)).notify(AlarmStatus.ALARM);
+        verify(mockListener, times(1)).sensorStatusChanged();
+        Assertions.assertEquals(1, securityService.getActiveSensorCount());
+    }
+
+    @Test //A batch that ends where it started still records the steps in between.
+    void sensorEventBatch_RecordsEveryTransition(){
+        when(securityRepository.getArmingStatus()).thenReturn(ArmingStatus.ARMED_AWAY);
+        when(securityRepository.getAlarmStatus()).thenReturn(AlarmStatus.NO_ALARM);
+        MetricsRegistry metrics = new MetricsRegistry();
+        securityService = new SecurityService(securityRepository, imageServiceInterface, new AlarmHistory(16, false), metrics);
+        securityService.addStatusListener(mockListener);
+
+        securityService.processSensorEvents(List.of(
+                new SensorEvent(sensor, true),
+                new SensorEvent(sensor, false)));
+
+        List<AlarmStatus> transitions = securityService.getHistory().getAlarmTransitions(Duration.ofHours(1)).stream()
+                .map(AlarmHistory.Entry::getAlarmStatus)
+                .collect(Collectors.toList());
+        Assertions.assertEquals(List.of(AlarmStatus.PENDING_ALARM, AlarmStatus.NO_ALARM), transitions);
+        Assertions.assertEquals(1, metrics.counter("securityService.alarmTransition.NO_ALARM.PENDING_ALARM").getCount());
+        Assertions.assertEquals(1, metrics.counter("securityService.alarmTransition.PENDING_ALARM.NO_ALARM").getCount());
+        verify(securityRepository, never()).setAlarmStatus(any());
+        verify(mockListener, never()).notify(any());
+        verify(mockListener, times(1)).sensorStatusChanged();
+    }
+
+    @Test //Only the latest asynchronous scan may change the alarm status.
+    void supersededAsyncScan_DoesNotChangeAlarmStatus(){
+        BufferedImage catImage = new BufferedImage(256, 256, BufferedImage.TYPE_INT_RGB);
+        CompletableFuture<Boolean> firstScan = new CompletableFuture<>();
+        CompletableFuture<Boolean> secondScan = new CompletableFuture<>();
+        when(imageServiceInterface.imageContainsCatAsync(any(), ArgumentMatchers.anyFloat(), any())).thenReturn(firstScan, secondScan);
+        when(securityRepository.getArmingStatus()).thenReturn(ArmingStatus.ARMED_HOME);
+
+        CompletableFuture<Boolean> firstResult = securityService.processImageAsync(catImage);
+        CompletableFuture<Boolean> secondResult = securityService.processImageAsync(catImage);
+        firstScan.complete(true);
+        secondScan.complete(true);
+
+        Assertions.assertTrue(firstResult.isCompletedExceptionally());
+        Assertions.assertTrue(secondResult.join());
+        verify(securityRepository, times(1)).setAlarmStatus(AlarmStatus.ALARM);
+    }
+
+    @Test //A result already waiting for the state executor when a newer scan starts is dropped too.
+    void scanSupersededWhileWaitingForStateExecutor_CompletesCancelled() {
+        BufferedImage catImage = new BufferedImage(256, 256, BufferedImage.TYPE_INT_RGB);
+        List<Runnable> stateTasks = new ArrayList<>();
+        securityService.configureAsyncScans(Runnable::run, stateTasks::add, Duration.ofSeconds(5));
+        CompletableFuture<Boolean> secondScan = new CompletableFuture<>();
+        when(imageServiceInterface.imageContainsCatAsync(any(), ArgumentMatchers.anyFloat(), any()))
+                .thenReturn(CompletableFuture.completedFuture(true), secondScan);
+
+        CompletableFuture<Boolean> firstResult = securityService.processImageAsync(catImage);
+        //the first scan is done and its result queued, but not applied yet
+        Assertions.assertEquals(1, stateTasks.size());
+        CompletableFuture<Boolean> secondResult = securityService.processImageAsync(catImage);
+        stateTasks.forEach(Runnable::run);
+
+        ExecutionException failure = Assertions.assertThrows(ExecutionException.class, firstResult::get);
+        Assertions.assertTrue(failure.getCause() instanceof CancellationException);
+        Assertions.assertFalse(secondResult.isDone());
+        verify(securityRepository, never()).setAlarmStatus(any());
+    }
+
     // Below this line to support whole method coverage
     @Test
     void statusListenerTest4Coverage() {
@@ -0,0 +1,183 @@
+package com.udacity.catpoint.security.service;
+
+import com.udacity.catpoint.security.data.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs on a hand-driven clock. Scheduled deliveries are collected and run by {@link #advance(long)}.
+ */
+public class SensorDebouncerTest {
+
+    private long now;
+    private final List<Runnable> scheduled = new ArrayList<>();
+    private final ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1) {
+        @Override
+        public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+            scheduled.add(command);
+            return null;
+        }
+    };
+    private final List<Boolean> forwarded = new ArrayList<>();
+    private final SensorDebouncer debouncer = new SensorDebouncer((sensor, active) -> {
+        sensor.setActive(active);
+        forwarded.add(active);
+    }, Duration.ofMillis(100), scheduler, () -> now);
+
+    @AfterEach
+    void cleanUp() {
+        scheduler.shutdownNow();
+    }
+
+    private void advance(long millis) {
+        now += TimeUnit.MILLISECONDS.toNanos(millis);
+        List<Runnable> due = new ArrayList<>(scheduled);
+        scheduled.clear();
+        due.forEach(Runnable::run);
+    }
+
+    @Test
+    void firstActivation_ForwardedImmediately() {
+        Sensor door = new Sensor("door", SensorType.DOOR);
+        debouncer.submit(door, true);
+        assertEquals(List.of(true), forwarded);
+    }
+
+    @Test
+    void chatterWithinHoldTime_CollapsedToOneActivation() {
+        Sensor door = new Sensor("door", SensorType.DOOR);
+        for(int i = 0; i < 20; i++) {
+            debouncer.submit(door, i % 2 == 0);
+            advance(1);
+        }
+        debouncer.submit(door, true);
+        advance(200);
+        assertEquals(List.of(true), forwarded);
+        assertEquals(21, debouncer.getReceivedCount());
+    }
+
+    @Test
+    void deactivation_ForwardedOnceHoldTimeHasPassed() {
+        Sensor door = new Sensor("door", SensorType.DOOR);
+        debouncer.submit(door, true);
+        advance(10);
+        debouncer.submit(door, false);
+        assertEquals(List.of(true), forwarded);
+        advance(50);
+        assertEquals(List.of(true), forwarded);
+        advance(50);
+        assertEquals(List.of(true, false), forwarded);
+
+        //and right away once the sensor has been active long enough
+        debouncer.submit(door, true);
+        advance(150);
+        debouncer.submit(door, false);
+        assertEquals(List.of(true, false, true, false), forwarded);
+    }
+
+    @Test
+    void holdTimes_SensorOverridesTypeOverridesDefault() {
+        Sensor window = new Sensor("window", SensorType.WINDOW);
+        Sensor motion = new Sensor("motion", SensorType.MOTION);
+        Sensor hallway = new Sensor("hallway", SensorType.MOTION);
+        debouncer.setHoldTime(SensorType.MOTION, Duration.ofMillis(500));
+        debouncer.setHoldTime(hallway.getSensorId(), Duration.ZERO);
+
+        for(Sensor sensor : List.of(window, motion, hallway)) {
+            debouncer.submit(sensor, true);
+        }
+        advance(200);
+        for(Sensor sensor : List.of(window, motion, hallway)) {
+            debouncer.submit(sensor, false);
+        }
+        assertFalse(window.getActive());
+        assertTrue(motion.getActive());
+        assertFalse(hallway.getActive());
+    }
+
+    @Test
+    void flappingSensor_HeldActiveUntilQuiet() {
+        debouncer.setFlapDetection(4, Duration.ofSeconds(1));
+        Sensor door = new Sensor("door", SensorType.DOOR);
+        for(int i = 0; i < 4; i++) {
+            debouncer.submit(door, i % 2 == 0);
+            advance(30);
+        }
+        assertTrue(debouncer.isFlapping(door.getSensorId()));
+        assertEquals(1, debouncer.getFlapsDetected());
+        assertEquals(List.of(true), forwarded);
+
+        //a settled sensor would have been released 100ms after activating, a flapping one has to stay quiet for 100ms
+        advance(50);
+        assertTrue(door.getActive());
+        advance(30);
+        assertFalse(door.getActive());
+        assertFalse(debouncer.isFlapping(door.getSensorId()));
+    }
+
+    @Test
+    void blockingTarget_DoesNotHoldUpOtherSensors() throws Exception {
+        CountDownLatch targetEntered = new CountDownLatch(1);
+        CountDownLatch releaseTarget = new CountDownLatch(1);
+        List<String> received = new CopyOnWriteArrayList<>();
+        SensorDebouncer blockingDebouncer = new SensorDebouncer((sensor, active) -> {
+            if(sensor.getName().equals("door")) {
+                targetEntered.countDown();
+                try {
+                    releaseTarget.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            received.add(sensor.getName() + " " + active);
+        }, Duration.ZERO, scheduler, () -> now);
+        Sensor door = new Sensor("door", SensorType.DOOR);
+        Sensor window = new Sensor("window", SensorType.WINDOW);
+
+        Thread doorThread = new Thread(() -> blockingDebouncer.submit(door, true));
+        doorThread.start();
+        assertTrue(targetEntered.await(5, TimeUnit.SECONDS));
+
+        //the target is stuck on the door, but other threads can still submit
+        Thread windowThread = new Thread(() -> {
+            blockingDebouncer.submit(window, true);
+            blockingDebouncer.submit(window, false);
+        });
+        windowThread.start();
+        windowThread.join(TimeUnit.SECONDS.toMillis(5));
+        assertFalse(windowThread.isAlive());
+        assertEquals(3, blockingDebouncer.getForwardedCount());
+
+        releaseTarget.countDown();
+        doorThread.join(TimeUnit.SECONDS.toMillis(5));
+        assertEquals(List.of("door true", "window true", "window false"), received);
+    }
+
+    @Test
+    void securityService_SeesOneTransitionForNoisyActivation() {
+        SecurityService securityService = new SecurityService(new CompactSecurityRepositoryImpl(), null);
+        securityService.setArmingStatus(ArmingStatus.ARMED_AWAY);
+        Sensor door = new Sensor("door", SensorType.DOOR);
+        securityService.addSensor(door);
+        SensorDebouncer serviceDebouncer = new SensorDebouncer(securityService::changeSensorActivationStatus,
+                Duration.ofMillis(100), scheduler, () -> now);
+
+        for(int i = 0; i < 9; i++) {
+            serviceDebouncer.submit(door, i % 2 == 0);
+            advance(1);
+        }
+        assertEquals(AlarmStatus.PENDING_ALARM, securityService.getAlarmStatus());
+        assertEquals(1, serviceDebouncer.getForwardedCount());
+    }
+}
@@ -0,0 +1,35 @@
+package com.udacity.catpoint.benchmarks;
+
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.data.SensorType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Builds the same sensors and camera frames for every benchmark run, so results are comparable.
+ */
+final class BenchmarkData {
+
+    private static final long SEED = 42;
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * @return count sensors with repeatable ids, shuffled names and a mix of types
+     */
+    static List<Sensor> sensors(int count) {
+        Random random = new Random(SEED);
+        SensorType[] types = SensorType.values();
+        List<Sensor> sensors = new ArrayList<>(count);
+        for(int i = 0; i < count; i++) {
+            Sensor sensor = new Sensor("sensor_" + random.nextInt(count * 10), types[random.nextInt(types.length)]);
+            sensor.setSensorId(new UUID(SEED, i));
+            sensors.add(sensor);
+        }
+        return sensors;
+    }
+}
@@ -0,0 +1,73 @@
+package com.udacity.catpoint.benchmarks;
+
+import com.udacity.catpoint.image.service.AwsImageService;
+import com.udacity.catpoint.image.service.ImagePreprocessor;
+import org.openjdk.jmh.annotations.*;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of preparing a camera frame for Rekognition. AwsImageService talks to a stub client, so
+ * the benchmark measures scaling and JPEG encoding, compared with a plain full-size ImageIO encode.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class ImageEncodingBenchmark {
+
+    @Param({"640x480", "1920x1080", "3840x2160"})
+    String frameSize;
+
+    private BufferedImage frame;
+    private AwsImageService imageService;
+
+    @Setup
+    public void setUp() {
+        String[] size = frameSize.split("x");
+        frame = noisyFrame(Integer.parseInt(size[0]), Integer.parseInt(size[1]));
+        imageService = new AwsImageService(new StubRekognitionClient(), new ImagePreprocessor(1280, 960, 0.85f));
+    }
+
+    @Benchmark
+    public boolean awsImageService() {
+        return imageService.imageContainsCat(frame, 50.0f);
+    }
+
+    @Benchmark
+    public byte[] fullSizeImageIO() throws IOException {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        ImageIO.write(frame, "jpg", os);
+        return os.toByteArray();
+    }
+
+    /**
+     * A frame with shapes and sensor noise, which compresses like a real camera image rather than a flat color.
+     */
+    private static BufferedImage noisyFrame(int width, int height) {
+        Random random = new Random(42);
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        Graphics2D g = image.createGraphics();
+        for(int i = 0; i < 200; i++) {
+            g.setColor(new Color(random.nextInt(0xffffff)));
+            g.fillOval(random.nextInt(width), random.nextInt(height), random.nextInt(width / 4) + 1, random.nextInt(height / 4) + 1);
+        }
+        g.dispose();
+        for(int y = 0; y < height; y++) {
+            for(int x = 0; x < width; x += 3) {
+                int rgb = image.getRGB(x, y);
+                int noise = random.nextInt(16);
+                image.setRGB(x, y, rgb ^ (noise | noise << 8 | noise << 16));
+            }
+        }
+        return image;
+    }
+}
@@ -0,0 +1,101 @@
+package com.udacity.catpoint.benchmarks;
+
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.data.SensorType;
+
+import java.util.UUID;
+
+/**
+ * One event of a load run, due at an offset from the start of the run. Event logs hold one event
+ * per line:
+ *
+ *   [offset micros] sensor [sensor id] [sensor type] [true|false]
+ *   [offset micros] arming [arming status]
+ *   [offset micros] image
+ *
+ * Blank lines and lines starting with # are ignored.
+ */
+final class LoadEvent {
+
+    enum Kind {
+        SENSOR, ARMING, IMAGE
+    }
+
+    private final long offsetMicros;
+    private final Kind kind;
+    private final UUID sensorId;
+    private final SensorType sensorType;
+    private final boolean active;
+    private final ArmingStatus armingStatus;
+
+    private LoadEvent(long offsetMicros, Kind kind, UUID sensorId, SensorType sensorType, boolean active, ArmingStatus armingStatus) {
+        this.offsetMicros = offsetMicros;
+        this.kind = kind;
+        this.sensorId = sensorId;
+        this.sensorType = sensorType;
+        this.active = active;
+        this.armingStatus = armingStatus;
+    }
+
+    static LoadEvent sensor(long offsetMicros, UUID sensorId, SensorType sensorType, boolean active) {
+        return new LoadEvent(offsetMicros, Kind.SENSOR, sensorId, sensorType, active, null);
+    }
+
+    static LoadEvent arming(long offsetMicros, ArmingStatus armingStatus) {
+        return new LoadEvent(offsetMicros, Kind.ARMING, null, null, false, armingStatus);
+    }
+
+    static LoadEvent image(long offsetMicros) {
+        return new LoadEvent(offsetMicros, Kind.IMAGE, null, null, false, null);
+    }
+
+    /**
+     * @return the event on the line, or null for a blank or comment line
+     */
+    static LoadEvent parse(String line) {
+        String trimmed = line.trim();
+        if(trimmed.isEmpty() || trimmed.startsWith("#")) {
+            return null;
+        }
+        String[] fields = trimmed.split("\\s+");
+        long offsetMicros = Long.parseLong(fields[0]);
+        return switch (fields[1]) {
+            case "sensor" -> sensor(offsetMicros, UUID.fromString(fields[2]), SensorType.valueOf(fields[3]), Boolean.parseBoolean(fields[4]));
+            case "arming" -> arming(offsetMicros, ArmingStatus.valueOf(fields[2]));
+            case "image" -> image(offsetMicros);
+            default -> throw new IllegalArgumentException("Unknown event: " + line);
+        };
+    }
+
+    String format() {
+        return switch (kind) {
+            case SENSOR -> offsetMicros + " sensor " + sensorId + " " + sensorType + " " + active;
+            case ARMING -> offsetMicros + " arming " + armingStatus;
+            case IMAGE -> offsetMicros + " image";
+        };
+    }
+
+    long getOffsetMicros() {
+        return offsetMicros;
+    }
+
+    Kind getKind() {
+        return kind;
+    }
+
+    UUID getSensorId() {
+        return sensorId;
+    }
+
+    SensorType getSensorType() {
+        return sensorType;
+    }
+
+    boolean isActive() {
+        return active;
+    }
+
+    ArmingStatus getArmingStatus() {
+        return armingStatus;
+    }
+}
@@ -0,0 +1,227 @@
+package com.udacity.catpoint.benchmarks;
+
+import com.udacity.catpoint.image.service.FakeImageService;
+import com.udacity.catpoint.security.application.StatusListener;
+import com.udacity.catpoint.security.data.AlarmStatus;
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.metrics.LatencyHistogram;
+import com.udacity.catpoint.security.service.SecurityService;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+/**
+ * Drives a SecurityService on an in-memory repository with a synthetic event stream or a recorded
+ * event log (see {@link LoadEvent}), then reports throughput and latency percentiles. Images are
+ * classified by a seeded {@link FakeImageService}, so runs with the same options are repeatable
+ * and builds can be compared.
+ *
+ * Events are sent at the time they are due rather than as soon as the previous one finishes, and
+ * response time is measured from that due time, so a slow event also counts against the ones
+ * queued up behind it. Service time covers only the call itself.
+ *
+ * Run with: java -cp target/benchmarks.jar com.udacity.catpoint.benchmarks.LoadGenerator [options]
+ *   --seed [n]               seed for events and image results (42)
+ *   --rate [n]               average events per second, 0 for as fast as possible (10000)
+ *   --duration [seconds]     length of a synthetic run (10)
+ *   --sensors [n]            sensors in a synthetic run (1000)
+ *   --flap-share [0-1]       share of sensor events sent to the chattering sensors (0.5)
+ *   --arming-share [0-1]     share of events that change the arming status (0.001)
+ *   --image-share [0-1]      share of events that are camera images (0.01)
+ *   --cat-probability [0-1]  chance that an image shows a cat (0.1)
+ *   --image-latency-ms [n]   time the image service takes per image (0)
+ *   --replay [file]          replay an event log, at its own timing unless --rate is 0
+ *   --record [file]          write the events sent to an event log
+ */
+public final class LoadGenerator {
+
+    private long seed = 42;
+    private double rate = 10_000;
+    private long durationSeconds = 10;
+    private int sensorCount = 1000;
+    private double flapShare = 0.5;
+    private double armingShare = 0.001;
+    private double imageShare = 0.01;
+    private double catProbability = 0.1;
+    private long imageLatencyMillis;
+    private Path replay;
+    private Path record;
+
+    private SecurityService securityService;
+    private final Map<UUID, Sensor> sensors = new HashMap<>();
+    private final BufferedImage frame = new BufferedImage(64, 48, BufferedImage.TYPE_INT_RGB);
+
+    private final LatencyHistogram responseTime = new LatencyHistogram();
+    private final Map<LoadEvent.Kind, LatencyHistogram> serviceTime = new EnumMap<>(LoadEvent.Kind.class);
+    private long alarmTransitions;
+
+    private LoadGenerator() {
+        for(LoadEvent.Kind kind : LoadEvent.Kind.values()) {
+            serviceTime.put(kind, new LatencyHistogram());
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        LoadGenerator generator = new LoadGenerator();
+        generator.parseArgs(args);
+        generator.run();
+    }
+
+    private void parseArgs(String[] args) {
+        for(int i = 0; i < args.length; i++) {
+            String option = args[i];
+            if(i + 1 >= args.length) {
+                throw new IllegalArgumentException(option + " needs a value");
+            }
+            String value = args[++i];
+            switch (option) {
+                case "--seed" -> seed = Long.parseLong(value);
+                case "--rate" -> rate = Double.parseDouble(value);
+                case "--duration" -> durationSeconds = Long.parseLong(value);
+                case "--sensors" -> sensorCount = Integer.parseInt(value);
+                case "--flap-share" -> flapShare = Double.parseDouble(value);
+                case "--arming-share" -> armingShare = Double.parseDouble(value);
+                case "--image-share" -> imageShare = Double.parseDouble(value);
+                case "--cat-probability" -> catProbability = Double.parseDouble(value);
+                case "--image-latency-ms" -> imageLatencyMillis = Long.parseLong(value);
+                case "--replay" -> replay = Paths.get(value);
+                case "--record" -> record = Paths.get(value);
+                default -> throw new IllegalArgumentException("Unknown option: " + option);
+            }
+        }
+    }
+
+    private void run() throws IOException {
+        securityService = new SecurityService(new InMemorySecurityRepository(),
+                new FakeImageService(seed, catProbability, Duration.ofMillis(imageLatencyMillis)));
+        securityService.addStatusListener(new TransitionCounter());
+
+        if(replay != null) {
+            try (Stream<String> lines = Files.lines(replay)) {
+                drive(lines.map(LoadEvent::parse).filter(Objects::nonNull).iterator(), rate > 0);
+            }
+        } else {
+            List<Sensor> synthetic = BenchmarkData.sensors(sensorCount);
+            synthetic.forEach(sensor -> {
+                sensors.put(sensor.getSensorId(), sensor);
+                securityService.addSensor(sensor);
+            });
+            //a synthetic run has to space its events by some rate, even if they are sent unpaced
+            double eventRate = rate > 0 ? rate : 10_000;
+            SyntheticLoad load = new SyntheticLoad(seed, synthetic, eventRate,
+                    TimeUnit.SECONDS.toMicros(durationSeconds), flapShare, armingShare, imageShare);
+            drive(load, rate > 0);
+        }
+    }
+
+    private void drive(Iterator<LoadEvent> events, boolean paced) throws IOException {
+        BufferedWriter recorder = record == null ? null : Files.newBufferedWriter(record);
+        long start = System.nanoTime();
+        long count = 0;
+        try {
+            while(events.hasNext()) {
+                LoadEvent event = events.next();
+                long due = start + TimeUnit.MICROSECONDS.toNanos(event.getOffsetMicros());
+                if(paced) {
+                    for(long wait = due - System.nanoTime(); wait > 0; wait = due - System.nanoTime()) {
+                        LockSupport.parkNanos(wait);
+                    }
+                }
+                long sent = System.nanoTime();
+                apply(event);
+                long done = System.nanoTime();
+                serviceTime.get(event.getKind()).record(done - sent);
+                responseTime.record(done - (paced ? due : sent));
+                count++;
+                if(recorder != null) {
+                    recorder.write(event.format());
+                    recorder.newLine();
+                }
+            }
+        } finally {
+            if(recorder != null) {
+                recorder.close();
+            }
+        }
+        report(count, System.nanoTime() - start, paced);
+    }
+
+    private void apply(LoadEvent event) {
+        switch (event.getKind()) {
+            case SENSOR -> {
+                Sensor sensor = sensors.get(event.getSensorId());
+                if(sensor == null) {
+                    //a replayed log may name sensors the repository hasn't seen yet
+                    sensor = new Sensor("sensor_" + sensors.size(), event.getSensorType());
+                    sensor.setSensorId(event.getSensorId());
+                    sensors.put(sensor.getSensorId(), sensor);
+                    securityService.addSensor(sensor);
+                }
+                securityService.changeSensorActivationStatus(sensor, event.isActive());
+            }
+            case ARMING -> securityService.setArmingStatus(event.getArmingStatus());
+            case IMAGE -> securityService.processImage(frame);
+        }
+    }
+
+    private void report(long count, long elapsedNanos, boolean paced) {
+        double seconds = elapsedNanos / 1e9;
+        System.out.printf("events            %d (sensor %d, arming %d, image %d)%n", count,
+                serviceTime.get(LoadEvent.Kind.SENSOR).getCount(),
+                serviceTime.get(LoadEvent.Kind.ARMING).getCount(),
+                serviceTime.get(LoadEvent.Kind.IMAGE).getCount());
+        System.out.printf("elapsed           %.2f s%n", seconds);
+        System.out.printf("throughput        %.1f events/s%s%n", count / seconds, paced && replay == null ? " (target " + rate + ")" : "");
+        System.out.printf("alarm transitions %d%n", alarmTransitions);
+        System.out.println("latency, micros    p50       p90       p99     p99.9       max");
+        printPercentiles(paced ? "response" : "response (unpaced)", responseTime);
+        serviceTime.forEach((kind, histogram) -> printPercentiles("service " + kind.name().toLowerCase(), histogram));
+    }
+
+    private static void printPercentiles(String label, LatencyHistogram histogram) {
+        System.out.printf("%-18s%9.1f %9.1f %9.1f %9.1f %9.1f%n", label,
+                histogram.getValueAtPercentile(50) / 1e3,
+                histogram.getValueAtPercentile(90) / 1e3,
+                histogram.getValueAtPercentile(99) / 1e3,
+                histogram.getValueAtPercentile(99.9) / 1e3,
+                histogram.getValueAtPercentile(100) / 1e3);
+    }
+
+    /**
+     * Counts alarm status changes. The service also notifies listeners when the status is set to its current value.
+     */
+    private class TransitionCounter implements StatusListener {
+        private AlarmStatus last = AlarmStatus.NO_ALARM;
+
+        @Override
+        public void notify(AlarmStatus status) {
+            if(status != last) {
+                alarmTransitions++;
+                last = status;
+            }
+        }
+
+        @Override
+        public void catDetected(boolean catDetected) {
+        }
+
+        @Override
+        public void sensorStatusChanged() {
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.udacity.catpoint.benchmarks;
+
+import com.udacity.catpoint.image.service.FakeImageService;
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.service.PremisesEngine;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sensor events per second through a {@link PremisesEngine}, by partition count. With one
+ * partition per core the score should grow close to linearly until the partitions outnumber the
+ * cores, or the single producer thread becomes the bottleneck.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PremisesEngineBenchmark {
+
+    private static final int EVENTS_PER_INVOCATION = 10_000;
+    private static final int SENSORS_PER_PREMISES = 8;
+
+    @Param({"1", "2", "4", "8"})
+    int partitions;
+
+    @Param({"10000"})
+    int premisesCount;
+
+    private PremisesEngine engine;
+    private String[] premisesIds;
+    private UUID[][] sensorIds;
+    private int[] eventPremises;
+    private int[] eventSensors;
+    private int next;
+
+    @Setup
+    public void setUp() throws Exception {
+        engine = new PremisesEngine(partitions, PremisesEngine.inMemoryPremises(new FakeImageService()));
+        premisesIds = new String[premisesCount];
+        sensorIds = new UUID[premisesCount][];
+        for(int p = 0; p < premisesCount; p++) {
+            premisesIds[p] = "premises_" + p;
+            List<Sensor> sensors = BenchmarkData.sensors(SENSORS_PER_PREMISES);
+            sensorIds[p] = new UUID[SENSORS_PER_PREMISES];
+            for(int s = 0; s < SENSORS_PER_PREMISES; s++) {
+                Sensor sensor = sensors.get(s);
+                sensor.setSensorId(new UUID(p, s));
+                sensorIds[p][s] = sensor.getSensorId();
+                engine.addSensor(premisesIds[p], sensor);
+            }
+            engine.submitArmingStatus(premisesIds[p], ArmingStatus.ARMED_AWAY);
+        }
+        engine.drain().get();
+
+        //a repeatable stream of readings scattered across all premises
+        Random random = new Random(42);
+        eventPremises = new int[EVENTS_PER_INVOCATION * 16];
+        eventSensors = new int[eventPremises.length];
+        for(int i = 0; i < eventPremises.length; i++) {
+            eventPremises[i] = random.nextInt(premisesCount);
+            eventSensors[i] = random.nextInt(SENSORS_PER_PREMISES);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        engine.close();
+    }
+
+    /**
+     * Submits a block of readings and waits until every partition has applied them.
+     */
+    @Benchmark
+    @OperationsPerInvocation(EVENTS_PER_INVOCATION)
+    public void sensorEvents() throws Exception {
+        for(int i = 0; i < EVENTS_PER_INVOCATION; i++) {
+            int event = next;
+            next = (next + 1) % eventPremises.length;
+            engine.submitSensorEvent(premisesIds[eventPremises[event]], sensorIds[eventPremises[event]][eventSensors[event]], (event & 1) == 0);
+        }
+        engine.drain().get();
+    }
+}
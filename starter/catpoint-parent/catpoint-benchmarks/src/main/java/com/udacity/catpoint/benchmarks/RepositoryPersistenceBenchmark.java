@@ -0,0 +1,65 @@
+package com.udacity.catpoint.benchmarks;
+
+import com.udacity.catpoint.security.data.PretendDatabaseSecurityRepositoryImpl;
+import com.udacity.catpoint.security.data.Sensor;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.prefs.BackingStoreException;
+import java.util.prefs.Preferences;
+
+/**
+ * Cost of persisting one sensor change with PretendDatabaseSecurityRepositoryImpl, writing every
+ * change immediately or in write-behind mode, as JSON or binary. The repository uses its own
+ * preferences node, so running the benchmark leaves the application's sensors alone.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RepositoryPersistenceBenchmark {
+
+    private static final String PREFERENCES_NODE = "com/udacity/catpoint/benchmarks";
+
+    //in JSON format the sensors are stored as a single preference value, which preferences cap at 8 KB
+    @Param({"10", "50"})
+    int sensorCount;
+
+    @Param({"JSON", "BINARY"})
+    PretendDatabaseSecurityRepositoryImpl.SensorFormat format;
+
+    @Param({"0", "500"})
+    long flushIntervalMillis;
+
+    private Preferences prefs;
+    private PretendDatabaseSecurityRepositoryImpl repository;
+    private List<Sensor> sensors;
+    private int next;
+
+    @Setup
+    public void setUp() throws BackingStoreException {
+        prefs = Preferences.userRoot().node(PREFERENCES_NODE);
+        prefs.clear();
+        repository = new PretendDatabaseSecurityRepositoryImpl(prefs, format, flushIntervalMillis, 100);
+        sensors = BenchmarkData.sensors(sensorCount);
+        sensors.forEach(repository::addSensor);
+        repository.flush();
+    }
+
+    @TearDown
+    public void tearDown() throws BackingStoreException {
+        repository.close();
+        prefs.removeNode();
+    }
+
+    @Benchmark
+    public void updateSensor() {
+        Sensor sensor = sensors.get(next);
+        next = (next + 1) % sensors.size();
+        sensor.setActive(!sensor.getActive());
+        repository.updateSensor(sensor);
+    }
+}
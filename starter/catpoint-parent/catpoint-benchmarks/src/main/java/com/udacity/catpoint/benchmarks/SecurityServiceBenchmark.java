@@ -0,0 +1,57 @@
+package com.udacity.catpoint.benchmarks;
+
+import com.udacity.catpoint.image.service.FakeImageService;
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.service.SecurityService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the SecurityService state machine with N sensors, on an in-memory repository.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SecurityServiceBenchmark {
+
+    @Param({"10", "100", "1000"})
+    int sensorCount;
+
+    private SecurityService securityService;
+    private List<Sensor> sensors;
+    private int next;
+    private boolean armed;
+
+    @Setup
+    public void setUp() {
+        securityService = new SecurityService(new InMemorySecurityRepository(), new FakeImageService());
+        sensors = BenchmarkData.sensors(sensorCount);
+        sensors.forEach(securityService::addSensor);
+        securityService.setArmingStatus(ArmingStatus.ARMED_AWAY);
+    }
+
+    /**
+     * Flips one sensor per call, cycling through all of them.
+     */
+    @Benchmark
+    public void changeSensorActivationStatus() {
+        Sensor sensor = sensors.get(next);
+        next = (next + 1) % sensors.size();
+        securityService.changeSensorActivationStatus(sensor, !Boolean.TRUE.equals(sensor.getActive()));
+    }
+
+    /**
+     * Alternates between armed and disarmed. Arming resets every sensor.
+     */
+    @Benchmark
+    public void setArmingStatus() {
+        armed = !armed;
+        securityService.setArmingStatus(armed ? ArmingStatus.ARMED_HOME : ArmingStatus.DISARMED);
+    }
+}
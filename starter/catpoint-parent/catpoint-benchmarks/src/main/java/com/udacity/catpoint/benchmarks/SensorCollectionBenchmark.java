@@ -0,0 +1,49 @@
+package com.udacity.catpoint.benchmarks;
+
+import com.udacity.catpoint.image.service.FakeImageService;
+import com.udacity.catpoint.security.data.Sensor;
+import com.udacity.catpoint.security.service.SecurityService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of sorting sensors for display with Sensor.compareTo, and of the copy SecurityService.getSensors() hands out.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SensorCollectionBenchmark {
+
+    @Param({"10", "100", "1000"})
+    int sensorCount;
+
+    private List<Sensor> sensors;
+    private SecurityService securityService;
+
+    @Setup
+    public void setUp() {
+        sensors = BenchmarkData.sensors(sensorCount);
+        securityService = new SecurityService(new InMemorySecurityRepository(), new FakeImageService());
+        sensors.forEach(securityService::addSensor);
+    }
+
+    @Benchmark
+    public List<Sensor> sortSensors() {
+        List<Sensor> sorted = new ArrayList<>(sensors);
+        Collections.sort(sorted);
+        return sorted;
+    }
+
+    @Benchmark
+    public Set<Sensor> getSensors() {
+        return securityService.getSensors();
+    }
+}
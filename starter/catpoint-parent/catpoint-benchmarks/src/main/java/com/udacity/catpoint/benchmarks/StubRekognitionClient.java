@@ -0,0 +1,31 @@
+package com.udacity.catpoint.benchmarks;
+
+import software.amazon.awssdk.services.rekognition.RekognitionClient;
+import software.amazon.awssdk.services.rekognition.model.DetectLabelsRequest;
+import software.amazon.awssdk.services.rekognition.model.DetectLabelsResponse;
+import software.amazon.awssdk.services.rekognition.model.Label;
+
+/**
+ * Rekognition client that answers instantly without touching the network, leaving only the work
+ * AwsImageService does locally.
+ */
+class StubRekognitionClient implements RekognitionClient {
+
+    private final DetectLabelsResponse response = DetectLabelsResponse.builder()
+            .labels(Label.builder().name("Cat").confidence(97.5f).build())
+            .build();
+
+    @Override
+    public DetectLabelsResponse detectLabels(DetectLabelsRequest detectLabelsRequest) {
+        return response;
+    }
+
+    @Override
+    public String serviceName() {
+        return SERVICE_NAME;
+    }
+
+    @Override
+    public void close() {
+    }
+}
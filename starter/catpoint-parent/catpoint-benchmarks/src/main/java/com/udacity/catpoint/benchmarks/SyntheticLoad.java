@@ -0,0 +1,85 @@
+package com.udacity.catpoint.benchmarks;
+
+import com.udacity.catpoint.security.data.ArmingStatus;
+import com.udacity.catpoint.security.data.Sensor;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * Seeded stream of synthetic events arriving at random (Poisson) times at an average rate. Most
+ * events are sensor flips. A small set of chattering sensors gets a configurable share of them,
+ * and the rest are spread over all sensors. The remainder are arming changes and camera images.
+ * Equal settings and seeds give identical streams.
+ */
+final class SyntheticLoad implements Iterator<LoadEvent> {
+
+    //share of the sensors that chatter
+    private static final double FLAPPING_SENSOR_FRACTION = 0.1;
+    private static final ArmingStatus[] ARMING_STATUSES = ArmingStatus.values();
+
+    private final Random random;
+    private final List<Sensor> sensors;
+    private final boolean[] active;
+    private final double ratePerSecond;
+    private final long endMicros;
+    private final double flapShare;
+    private final double armingShare;
+    private final double imageShare;
+    private final int flappingSensors;
+    private long nextOffsetMicros;
+
+    /**
+     * @param flapShare Share (0-1) of sensor events that go to the chattering sensors
+     * @param armingShare Share (0-1) of all events that change the arming status
+     * @param imageShare Share (0-1) of all events that are camera images
+     */
+    SyntheticLoad(long seed, List<Sensor> sensors, double ratePerSecond, long durationMicros,
+                  double flapShare, double armingShare, double imageShare) {
+        this.random = new Random(seed);
+        this.sensors = sensors;
+        this.active = new boolean[sensors.size()];
+        this.ratePerSecond = ratePerSecond;
+        this.endMicros = durationMicros;
+        this.flapShare = flapShare;
+        this.armingShare = armingShare;
+        this.imageShare = imageShare;
+        this.flappingSensors = Math.max(1, (int) (sensors.size() * FLAPPING_SENSOR_FRACTION));
+        this.nextOffsetMicros = nextGap();
+    }
+
+    @Override
+    public boolean hasNext() {
+        return nextOffsetMicros < endMicros;
+    }
+
+    @Override
+    public LoadEvent next() {
+        if(!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        long offsetMicros = nextOffsetMicros;
+        nextOffsetMicros += nextGap();
+
+        double kind = random.nextDouble();
+        if(kind < armingShare) {
+            return LoadEvent.arming(offsetMicros, ARMING_STATUSES[random.nextInt(ARMING_STATUSES.length)]);
+        }
+        if(kind < armingShare + imageShare) {
+            return LoadEvent.image(offsetMicros);
+        }
+        int index = random.nextDouble() < flapShare ? random.nextInt(flappingSensors) : random.nextInt(sensors.size());
+        active[index] = !active[index];
+        Sensor sensor = sensors.get(index);
+        return LoadEvent.sensor(offsetMicros, sensor.getSensorId(), sensor.getSensorType(), active[index]);
+    }
+
+    /**
+     * @return exponentially distributed time to the next event, in micros
+     */
+    private long nextGap() {
+        return Math.max(1, Math.round(-Math.log(1 - random.nextDouble()) / ratePerSecond * 1_000_000));
+    }
+}